@@ -42,9 +42,6 @@ import com.vividsolutions.jts.geom.*;
  */
 public class EuclideanDistanceToPoint {
 
-  // used for point-line distance calculation
-  private static LineSegment tempSegment = new LineSegment();
-
   public EuclideanDistanceToPoint() {
   }
 
@@ -69,6 +66,9 @@ public class EuclideanDistanceToPoint {
   }
   public static void computeDistance(LineString line, Coordinate pt, PointPairDistance ptDist)
   {
+    // used for point-line distance calculation. Not static, so that several
+    // threads can compute distances at the same time
+    LineSegment tempSegment = new LineSegment();
     Coordinate[] coords = line.getCoordinates();
     for (int i = 0; i < coords.length - 1; i++) {
       tempSegment.setCoordinates(coords[i], coords[i + 1]);
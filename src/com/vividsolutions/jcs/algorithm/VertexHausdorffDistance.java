@@ -34,10 +34,15 @@
 
 package com.vividsolutions.jcs.algorithm;
 
+import java.util.Arrays;
+
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateFilter;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
 import com.vividsolutions.jts.geom.LineSegment;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Polygon;
 /**
  * Implements algorithm for computing a distance metric
  * which can be thought of as the "Maximum Vertex Distance".
@@ -67,6 +72,29 @@ public class VertexHausdorffDistance {
 
   public double distance() { return ptDist.getDistance(); }
 
+  /**
+   * Computes the distance without the point pair, stopping as soon as it is
+   * known to be at least maxDistance.
+   * Method not part of the original JCS code.
+   * @param g0 a geometry
+   * @param g1 another geometry
+   * @param maxDistance the distance beyond which the exact value is not needed
+   * @return the distance if it is less than maxDistance, otherwise a value
+   * greater than or equal to maxDistance
+   */
+  public static double distance(Geometry g0, Geometry g1, double maxDistance) {
+    Segments segments0 = new Segments(g0);
+    Segments segments1 = new Segments(g1);
+    if (segments0.isEmpty() || segments1.isEmpty()) {
+      return new VertexHausdorffDistance(g0, g1).distance();
+    }
+    double distance = segments1.maxVertexDistance(g0, 0, maxDistance, null);
+    if (distance >= maxDistance) {
+      return distance;
+    }
+    return segments0.maxVertexDistance(g1, distance, maxDistance, null);
+  }
+
   public Coordinate[] getCoordinates() { return ptDist.getCoordinates(); }
 
   private void compute(LineSegment seg0, LineSegment seg1)
@@ -93,8 +121,16 @@ public class VertexHausdorffDistance {
 
   private void compute(Geometry g0, Geometry g1)
   {
-    computeMaxPointDistance(g0, g1, ptDist);
-    computeMaxPointDistance(g1, g0, ptDist);
+    Segments segments0 = new Segments(g0);
+    Segments segments1 = new Segments(g1);
+    if (segments0.isEmpty() || segments1.isEmpty()) {
+      computeMaxPointDistance(g0, g1, ptDist);
+      computeMaxPointDistance(g1, g0, ptDist);
+      return;
+    }
+    //Start below 0 so that the first vertex gives the point pair.
+    double distance = segments1.maxVertexDistance(g0, -1, Double.POSITIVE_INFINITY, ptDist);
+    segments0.maxVertexDistance(g1, distance, Double.POSITIVE_INFINITY, ptDist);
   }
 
   private void computeMaxPointDistance(Geometry pointGeom, Geometry geom, PointPairDistance ptDist)
@@ -126,4 +162,253 @@ public class VertexHausdorffDistance {
 
     public PointPairDistance getMaxPointDistance() { return maxPtDist; }
   }
+
+  /**
+   * The segments of a geometry, a point being a segment of length 0, in flat
+   * arrays. Above a few segments they are sorted by the x of their centre, so
+   * that the search for the segment nearest to a vertex can start at the
+   * vertex x and stop when the remaining centres are too far on either side.
+   * <P>
+   * Class not part of the original JCS code.
+   */
+  private static final class Segments {
+
+    /**
+     * Below this number of segments, scanning them all is faster than sorting.
+     */
+    private static final int MIN_SORTED_SEGMENTS = 16;
+
+    private double[] x0;
+    private double[] y0;
+    private double[] x1;
+    private double[] y1;
+    private double[] centreX;
+    private int count = 0;
+    private double maxHalfWidth = 0;
+    private boolean sorted = false;
+    /**
+     * Segment nearest to the previous vertex, tried first for the next one.
+     */
+    private int hint = 0;
+
+    Segments(Geometry geom) {
+      int capacity = Math.max(1, geom.getNumPoints());
+      x0 = new double[capacity];
+      y0 = new double[capacity];
+      x1 = new double[capacity];
+      y1 = new double[capacity];
+      add(geom);
+      if (count >= MIN_SORTED_SEGMENTS) {
+        sort();
+      }
+    }
+
+    boolean isEmpty() {
+      return count == 0;
+    }
+
+    /** Same traversal as EuclideanDistanceToPoint#computeDistance. */
+    private void add(Geometry geom) {
+      if (geom instanceof LineString) {
+        Coordinate[] coords = ((LineString) geom).getCoordinates();
+        for (int i = 0; i < coords.length - 1; i++) {
+          add(coords[i], coords[i + 1]);
+        }
+      } else if (geom instanceof Polygon) {
+        Polygon poly = (Polygon) geom;
+        add(poly.getExteriorRing());
+        for (int i = 0; i < poly.getNumInteriorRing(); i++) {
+          add(poly.getInteriorRingN(i));
+        }
+      } else if (geom instanceof GeometryCollection) {
+        for (int i = 0; i < geom.getNumGeometries(); i++) {
+          add(geom.getGeometryN(i));
+        }
+      } else if (!geom.isEmpty()) {
+        add(geom.getCoordinate(), geom.getCoordinate());
+      }
+    }
+
+    private void add(Coordinate p0, Coordinate p1) {
+      if (count == x0.length) {
+        x0 = Arrays.copyOf(x0, count * 2);
+        y0 = Arrays.copyOf(y0, count * 2);
+        x1 = Arrays.copyOf(x1, count * 2);
+        y1 = Arrays.copyOf(y1, count * 2);
+      }
+      x0[count] = p0.x;
+      y0[count] = p0.y;
+      x1[count] = p1.x;
+      y1[count] = p1.y;
+      maxHalfWidth = Math.max(maxHalfWidth, Math.abs(p1.x - p0.x) / 2);
+      count++;
+    }
+
+    private void sort() {
+      Integer[] order = new Integer[count];
+      double[] centres = new double[count];
+      for (int i = 0; i < count; i++) {
+        order[i] = i;
+        centres[i] = (x0[i] + x1[i]) / 2;
+      }
+      Arrays.sort(order, (a, b) -> Double.compare(centres[a], centres[b]));
+      double[] sx0 = new double[count];
+      double[] sy0 = new double[count];
+      double[] sx1 = new double[count];
+      double[] sy1 = new double[count];
+      centreX = new double[count];
+      for (int i = 0; i < count; i++) {
+        int j = order[i];
+        sx0[i] = x0[j];
+        sy0[i] = y0[j];
+        sx1[i] = x1[j];
+        sy1[i] = y1[j];
+        centreX[i] = centres[j];
+      }
+      x0 = sx0;
+      y0 = sy0;
+      x1 = sx1;
+      y1 = sy1;
+      sorted = true;
+    }
+
+    /**
+     * Returns the maximum over the vertices of the given geometry of their
+     * distance to the nearest segment.
+     * @param pointGeom the geometry whose vertices are measured
+     * @param distance the maximum found so far; the vertices having a segment
+     * within this distance are not measured exactly
+     * @param maxDistance stop as soon as the maximum reaches it
+     * @param ptDist updated with the point pair of the maximum, if not null
+     */
+    double maxVertexDistance(Geometry pointGeom, double distance, double maxDistance,
+        PointPairDistance ptDist) {
+      for (Coordinate pt : pointGeom.getCoordinates()) {
+        double vertexDistance = nearestDistance(pt.x, pt.y, distance);
+        if (vertexDistance > distance) {
+          distance = vertexDistance;
+          if (ptDist != null) {
+            ptDist.setMaximum(closestPoint(hint, pt), pt);
+          }
+          if (distance >= maxDistance) {
+            break;
+          }
+        }
+      }
+      return distance;
+    }
+
+    /**
+     * Returns the distance from (x, y) to the nearest segment, or the
+     * distance to a segment not further than bound if there is one: the
+     * caller only needs to know the vertex does not raise the maximum.
+     * Leaves the index of that segment in #hint.
+     */
+    private double nearestDistance(double x, double y, double bound) {
+      int best = hint;
+      double bestDistance = distance(best, x, y);
+      if (bestDistance <= bound) {
+        return bestDistance;
+      }
+      if (!sorted) {
+        for (int i = 0; i < count && bestDistance > bound; i++) {
+          double d = distance(i, x, y);
+          if (d < bestDistance) {
+            bestDistance = d;
+            best = i;
+          }
+        }
+      } else {
+        int start = lowerBound(x);
+        int left = start - 1;
+        int right = start;
+        boolean goLeft = left >= 0;
+        boolean goRight = right < count;
+        while ((goLeft || goRight) && bestDistance > bound) {
+          if (goRight) {
+            if (centreX[right] - x - maxHalfWidth > bestDistance) {
+              goRight = false;
+            } else {
+              double d = distance(right, x, y);
+              if (d < bestDistance) {
+                bestDistance = d;
+                best = right;
+              }
+              goRight = ++right < count;
+            }
+          }
+          if (goLeft) {
+            if (x - centreX[left] - maxHalfWidth > bestDistance) {
+              goLeft = false;
+            } else {
+              double d = distance(left, x, y);
+              if (d < bestDistance) {
+                bestDistance = d;
+                best = left;
+              }
+              goLeft = --left >= 0;
+            }
+          }
+        }
+      }
+      hint = best;
+      return bestDistance;
+    }
+
+    private int lowerBound(double x) {
+      int low = 0;
+      int high = count;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (centreX[middle] < x) {
+          low = middle + 1;
+        } else {
+          high = middle;
+        }
+      }
+      return low;
+    }
+
+    /**
+     * Distance from (x, y) to segment i, with the same arithmetic as
+     * LineSegment#closestPoint followed by Coordinate#distance, without
+     * creating the closest point.
+     */
+    private double distance(int i, double x, double y) {
+      double factor = projectionFactor(i, x, y);
+      if (factor > 0 && factor < 1) {
+        double dx = x0[i] + factor * (x1[i] - x0[i]) - x;
+        double dy = y0[i] + factor * (y1[i] - y0[i]) - y;
+        return Math.sqrt(dx * dx + dy * dy);
+      }
+      double dx0 = x0[i] - x;
+      double dy0 = y0[i] - y;
+      double dist0 = Math.sqrt(dx0 * dx0 + dy0 * dy0);
+      double dx1 = x1[i] - x;
+      double dy1 = y1[i] - y;
+      double dist1 = Math.sqrt(dx1 * dx1 + dy1 * dy1);
+      return dist0 < dist1 ? dist0 : dist1;
+    }
+
+    private double projectionFactor(int i, double x, double y) {
+      if (x == x0[i] && y == y0[i]) {
+        return 0;
+      }
+      if (x == x1[i] && y == y1[i]) {
+        return 1;
+      }
+      double dx = x1[i] - x0[i];
+      double dy = y1[i] - y0[i];
+      double len2 = dx * dx + dy * dy;
+      if (len2 <= 0) {
+        return Double.NaN;
+      }
+      return ((x - x0[i]) * dx + (y - y0[i]) * dy) / len2;
+    }
+
+    /** Only used for the point pair, so allocating is fine. */
+    private Coordinate closestPoint(int i, Coordinate pt) {
+      return new LineSegment(x0[i], y0[i], x1[i], y1[i]).closestPoint(pt);
+    }
+  }
 }
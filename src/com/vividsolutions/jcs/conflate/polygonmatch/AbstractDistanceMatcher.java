@@ -2,6 +2,7 @@ package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jump.feature.Feature;
 import java.awt.geom.Point2D;
 
 public abstract class AbstractDistanceMatcher extends IndependentCandidateMatcher {
@@ -14,7 +15,34 @@ public abstract class AbstractDistanceMatcher extends IndependentCandidateMatche
     
     @Override
     public double match(Geometry target, Geometry candidate) {
-        double distance = distance(target, candidate);
+        return score(distance(target, candidate, distanceBound()), target, candidate);
+    }
+
+    /**
+     * Method not part of the original JCS code.
+     */
+    @Override
+    public double match(Feature target, Feature candidate) {
+        return score(distance(target, candidate, distanceBound()),
+            target.getGeometry(), candidate.getGeometry());
+    }
+
+    /**
+     * Distance beyond which the score is 0, so the exact value is not needed.
+     */
+    private double distanceBound() {
+        return maxDistance > 0 ? maxDistance : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Converts a distance returned by {@link #distance} into a score.
+     * Method not part of the original JCS code.
+     * @param distance the distance between target and candidate
+     * @param target the target geometry
+     * @param candidate the candidate geometry
+     * @return the score, between 0 and 1
+     */
+    protected double score(double distance, Geometry target, Geometry candidate) {
         if (maxDistance > 0) {
             return Math.max(0, 1 - (distance / maxDistance));
         } else {
@@ -26,6 +54,46 @@ public abstract class AbstractDistanceMatcher extends IndependentCandidateMatche
 
     protected abstract double distance(Geometry target, Geometry candidate);
 
+    /**
+     * Same as #distance(Geometry, Geometry), except that the exact distance
+     * is only needed when it is less than maxDistance. Subclasses override it
+     * to give up early on candidates that are too far.
+     * Method not part of the original JCS code.
+     * @param target the target geometry
+     * @param candidate the candidate geometry
+     * @param maxDistance the bound, possibly Double.POSITIVE_INFINITY
+     * @return the distance if it is less than maxDistance, otherwise any
+     * value greater than or equal to maxDistance
+     */
+    protected double distance(Geometry target, Geometry candidate, double maxDistance) {
+        return distance(target, candidate);
+    }
+
+    /**
+     * Same as #distance(Geometry, Geometry).
+     * Method not part of the original JCS code.
+     * @param target the feature to match
+     * @param candidate the feature to compare with the target
+     * @return the distance between target and candidate
+     */
+    protected double distance(Feature target, Feature candidate) {
+        return distance(target, candidate, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Same as #distance(Geometry, Geometry, double). Subclasses override it to
+     * reuse the GeometryDescriptors of the features.
+     * Method not part of the original JCS code.
+     * @param target the feature to match
+     * @param candidate the feature to compare with the target
+     * @param maxDistance the bound, possibly Double.POSITIVE_INFINITY
+     * @return the distance if it is less than maxDistance, otherwise any
+     * value greater than or equal to maxDistance
+     */
+    protected double distance(Feature target, Feature candidate, double maxDistance) {
+        return distance(target.getGeometry(), candidate.getGeometry(), maxDistance);
+    }
+
     private double combinedEnvelopeDiagonalDistance(
         Geometry target,
         Geometry candidate) {
@@ -38,6 +106,16 @@ public abstract class AbstractDistanceMatcher extends IndependentCandidateMatche
             envelope.getMaxY());
     }
 
+    /**
+     * Returns the maximum distance, which will give a score of 0.
+     * Method not part of the original JCS code.
+     * @return the maximum distance, or 0 if the score is relative to the
+     * combined envelope diagonal
+     */
+    public double getMaxDistance() {
+        return maxDistance;
+    }
+
     /**
      * Set he maximum distance, which will give a score of 0.
      * Method not part of the original JCS code.
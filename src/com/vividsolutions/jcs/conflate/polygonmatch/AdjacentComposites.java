@@ -0,0 +1,203 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.task.TaskMonitor;
+
+/**
+ * Enumerates the sets of adjacent features that TargetUnioningFCMatchFinder
+ * and CombinatorialFCMatchFinder turn into composites: the sets of at most
+ * k features connected by adjacency.
+ * <P>
+ * The adjacency graph is built once, each pair of features with
+ * intersecting envelopes being tested once. Connected sets are then
+ * enumerated by extension (the ESU algorithm of Wernicke, 2006): a set is
+ * only grown from its lowest feature, with features that are higher and
+ * adjacent to the last one added but not to the ones before. Each connected
+ * set is thus produced exactly once, without building the subsets of the
+ * neighbourhood of a feature and throwing away those too large or
+ * repeated, and the work is linear in the number of features when k and the
+ * number of neighbours are bounded.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+class AdjacentComposites {
+
+    /**
+     * Tells whether two features are adjacent, typically because they share
+     * an edge.
+     */
+    interface Adjacency {
+        boolean areAdjacent(Feature a, Feature b);
+    }
+
+    /**
+     * Orders features by ID, then by Feature#compareTo.
+     */
+    private static final Comparator<Feature> CANONICAL_ORDER = new Comparator<Feature>() {
+        @Override
+        public int compare(Feature a, Feature b) {
+            int byID = Integer.compare(a.getID(), b.getID());
+            return byID != 0 ? byID : a.compareTo(b);
+        }
+    };
+
+    private final int[][] neighbours;
+    private final int maxSize;
+    private final int[] set;
+    private final List<int[]> sets = new ArrayList<>();
+
+    private AdjacentComposites(int[][] neighbours, int maxSize) {
+        this.neighbours = neighbours;
+        this.maxSize = maxSize;
+        set = new int[maxSize];
+    }
+
+    /**
+     * Returns the sets of at most maxSize features of the collection that are
+     * connected by adjacency, single features included.
+     * @param fc the features to combine
+     * @param maxSize the maximum number of features of a set
+     * @param adjacency tells which features are adjacent
+     * @param monitor reports progress and cancellation
+     * @return each connected set once, its features in collection order
+     */
+    static List<List<Feature>> connectedSets(
+        FeatureCollection fc,
+        int maxSize,
+        Adjacency adjacency,
+        TaskMonitor monitor) {
+        List<Feature> features = fc.getFeatures();
+        int[][] neighbours = neighbours(fc, features, adjacency, monitor);
+        List<List<Feature>> connectedSets = new ArrayList<>();
+        if (maxSize < 1) {
+            return connectedSets;
+        }
+        AdjacentComposites composites = new AdjacentComposites(neighbours, maxSize);
+        for (int v = 0; v < features.size() && !monitor.isCancelRequested(); v++) {
+            monitor.report(v + 1, features.size(), "features");
+            composites.set[0] = v;
+            int[] extension = new int[neighbours[v].length];
+            int extensionSize = 0;
+            for (int u : neighbours[v]) {
+                if (u > v) {
+                    extension[extensionSize++] = u;
+                }
+            }
+            composites.extend(1, extension, extensionSize);
+            for (int[] indices : composites.sets) {
+                List<Feature> connectedSet = new ArrayList<>(indices.length);
+                for (int i : indices) {
+                    connectedSet.add(features.get(i));
+                }
+                connectedSets.add(connectedSet);
+            }
+            composites.sets.clear();
+        }
+        return connectedSets;
+    }
+
+    /**
+     * Records the current set of the given size, then each of its extensions
+     * by one of the given candidates. A candidate is removed before extending
+     * by the next one, so that no set is produced twice.
+     */
+    private void extend(int size, int[] extension, int extensionSize) {
+        int[] indices = Arrays.copyOf(set, size);
+        Arrays.sort(indices);
+        sets.add(indices);
+        if (size == maxSize) {
+            return;
+        }
+        for (int remaining = extensionSize; remaining > 0; remaining--) {
+            int w = extension[remaining - 1];
+            int[] next = Arrays.copyOf(extension, remaining - 1 + neighbours[w].length);
+            int nextSize = remaining - 1;
+            for (int u : neighbours[w]) {
+                if (u > set[0] && isExclusiveNeighbour(u, size)) {
+                    next[nextSize++] = u;
+                }
+            }
+            set[size] = w;
+            extend(size + 1, next, nextSize);
+        }
+    }
+
+    /**
+     * @return whether u is neither in the first size features of the set nor
+     * adjacent to them
+     */
+    private boolean isExclusiveNeighbour(int u, int size) {
+        for (int i = 0; i < size; i++) {
+            if (set[i] == u || Arrays.binarySearch(neighbours[set[i]], u) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the sorted indices of the features adjacent to each feature
+     */
+    private static int[][] neighbours(
+        FeatureCollection fc,
+        List<Feature> features,
+        Adjacency adjacency,
+        TaskMonitor monitor) {
+        monitor.report("Finding adjacent features");
+        Map<Feature, Integer> indices = new IdentityHashMap<>();
+        for (int i = 0; i < features.size(); i++) {
+            indices.put(features.get(i), Integer.valueOf(i));
+        }
+        int[][] neighbours = new int[features.size()][];
+        int[] counts = new int[features.size()];
+        for (int i = 0; i < features.size(); i++) {
+            neighbours[i] = new int[4];
+        }
+        for (int i = 0; i < features.size() && !monitor.isCancelRequested(); i++) {
+            monitor.report(i + 1, features.size(), "features");
+            Feature feature = features.get(i);
+            for (Feature other : fc.query(feature.getGeometry().getEnvelopeInternal())) {
+                Integer j = indices.get(other);
+                if (j == null || j.intValue() <= i
+                    || !adjacency.areAdjacent(feature, other)) {
+                    continue;
+                }
+                add(neighbours, counts, i, j.intValue());
+                add(neighbours, counts, j.intValue(), i);
+            }
+        }
+        for (int i = 0; i < features.size(); i++) {
+            neighbours[i] = Arrays.copyOf(neighbours[i], counts[i]);
+            Arrays.sort(neighbours[i]);
+        }
+        return neighbours;
+    }
+
+    private static void add(int[][] neighbours, int[] counts, int i, int j) {
+        if (counts[i] == neighbours[i].length) {
+            neighbours[i] = Arrays.copyOf(neighbours[i], 2 * counts[i]);
+        }
+        neighbours[i][counts[i]++] = j;
+    }
+
+    /**
+     * Returns the constituents of a composite in a canonical order, so that
+     * composites of the same features have equal keys whatever the order in
+     * which their features were given.
+     * @param features the constituents of a composite
+     * @return the constituents sorted by ID, then by Feature#compareTo
+     */
+    static Feature[] canonicalKey(List<Feature> features) {
+        Feature[] key = features.toArray(new Feature[features.size()]);
+        Arrays.sort(key, CANONICAL_ORDER);
+        return key;
+    }
+}
@@ -30,14 +30,16 @@
  * www.vividsolutions.com
  */
 package com.vividsolutions.jcs.conflate.polygonmatch;
-import java.util.List;
-
-import com.vividsolutions.jcs.geom.Angle;
+import com.vividsolutions.jts.algorithm.CGAlgorithms;
 import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Polygon;
 import com.vividsolutions.jts.io.WKTReader;
 import com.vividsolutions.jts.util.Assert;
-import com.vividsolutions.jump.util.CoordinateArrays;
+import com.vividsolutions.jump.feature.Feature;
 /**
  * Matches geometries by comparing their "angle histograms". An angle histogram
  * is a histogram of segment angles (with the positive x-axis), weighted by
@@ -68,12 +70,28 @@ public class AngleHistogramMatcher extends IndependentCandidateMatcher {
      */
     @Override
     public double match(Geometry target, Geometry candidate) {
-        Histogram targetHist = angleHistogram(target, binCount);
-        Histogram candidateHist = angleHistogram(candidate, binCount);
-        return MatcherUtil.toScoreFromSymDiffArea(
-            targetHist.getTotalScore(),
-            candidateHist.getTotalScore(),
-            targetHist.symDiff(candidateHist));
+        return score(angleHistogramBins(target, binCount),
+            angleHistogramBins(candidate, binCount));
+    }
+    /**
+     * Same as #match(Geometry, Geometry), with the cached histogram of each
+     * feature.
+     * Method not part of the original JCS code.
+     */
+    @Override
+    public double match(Feature target, Feature candidate) {
+        return score(GeometryDescriptors.of(target).getAngleHistogram(binCount),
+            GeometryDescriptors.of(candidate).getAngleHistogram(binCount));
+    }
+    private static double score(double[] targetBins, double[] candidateBins) {
+        double targetTotal = 0;
+        double candidateTotal = 0;
+        for (int i = 0; i < targetBins.length; i++) {
+            targetTotal += targetBins[i];
+            candidateTotal += candidateBins[i];
+        }
+        return MatcherUtil.toScoreFromSymDiffArea(targetTotal, candidateTotal,
+            Histogram.symDiff(targetBins, candidateBins));
     }
     /**
      * Creates an angle histogram for the given Geometry. The sum of the histogram
@@ -82,29 +100,137 @@ public class AngleHistogramMatcher extends IndependentCandidateMatcher {
      * @param binCount the number of bins into which -pi to +pi should be split
      * @return a histogram of g's segment angles (with the positive x-axis),
      * weighted by segment length
+     * @deprecated #match no longer calls this method, so overriding it does
+     * not change the scores; override #match(Geometry, Geometry) instead
      */
+    @Deprecated
     protected Histogram angleHistogram(Geometry g, int binCount) {
-        Geometry clone = (Geometry) g.clone();
-        //#normalize makes linestrings and polygons use a standard orientation.
-        //[Jon Aquino]
-        clone.normalize();
-        //In #toCoordinateArrays call, set orientPolygons=false because
-        //#normalize takes care of orienting the rings. [Jon Aquino]
-        List<Coordinate[]> lineStrings = CoordinateArrays.toCoordinateArrays(clone, false);
+        double[] bins = angleHistogramBins(g, binCount);
         Histogram h = new Histogram(binCount);
-        for (Coordinate[] c : lineStrings) {
-            h.add(angleHistogram(c, binCount));
+        for (int i = 0; i < binCount; i++) {
+            h.addToBinScore(i, bins[i]);
         }
         return h;
     }
-    private Histogram angleHistogram(Coordinate[] lineString, int binCount) {
-        Histogram h = new Histogram(binCount);
-        for (int i = 1; i < lineString.length; i++) { //start 1
-            h.addToBinScore(
-                bin(Angle.angle(lineString[i - 1], lineString[i]), binCount),
-                lineString[i - 1].distance(lineString[i]));
+    /**
+     * Computes the bin scores of the angle histogram of g straight from its
+     * coordinate sequences. Instead of cloning and normalizing the geometry,
+     * each line or ring is walked backwards when #normalize would reverse it:
+     * shells clockwise, holes counter-clockwise, lines starting from their
+     * lexicographically smaller end. The scores equal those of the original
+     * implementation up to the order of the additions.
+     * Method not part of the original JCS code.
+     * @param g the Geometry to analyze
+     * @param binCount the number of bins into which -pi to +pi should be split
+     * @return the sum of segment lengths in each bin
+     */
+    static double[] angleHistogramBins(Geometry g, int binCount) {
+        double[] bins = new double[binCount];
+        addToBins(g, bins);
+        return bins;
+    }
+    private static void addToBins(Geometry g, double[] bins) {
+        if (g.getDimension() <= 0) {
+            return;
+        } else if (g instanceof LineString) {
+            CoordinateSequence seq = ((LineString) g).getCoordinateSequence();
+            addToBins(seq, isReversedByNormalize(seq), bins);
+        } else if (g instanceof Polygon) {
+            Polygon poly = (Polygon) g;
+            addRingToBins(poly.getExteriorRing(), true, bins);
+            for (int i = 0; i < poly.getNumInteriorRing(); i++) {
+                addRingToBins(poly.getInteriorRingN(i), false, bins);
+            }
+        } else if (g instanceof GeometryCollection) {
+            for (int i = 0; i < g.getNumGeometries(); i++) {
+                addToBins(g.getGeometryN(i), bins);
+            }
+        } else {
+            Assert.shouldNeverReachHere("Geometry of type " +
+                g.getClass().getName() + " not handled");
+        }
+    }
+    /**
+     * Same orientation as Polygon#normalize.
+     */
+    private static void addRingToBins(LineString ring, boolean clockwise, double[] bins) {
+        if (ring.isEmpty()) {
+            return;
+        }
+        boolean reversed = isCCWOnceScrolled(ring.getCoordinates()) == clockwise;
+        addToBins(ring.getCoordinateSequence(), reversed, bins);
+    }
+    /**
+     * Same result as CGAlgorithms#isCCW on the ring once Polygon#normalize has
+     * made it start at its smallest coordinate, without moving the
+     * coordinates. Only the choice of the highest point depends on where the
+     * ring starts, which matters for rings with several highest points.
+     */
+    private static boolean isCCWOnceScrolled(Coordinate[] ring) {
+        int nPts = ring.length - 1;
+        if (nPts < 3) {
+            throw new IllegalArgumentException(
+                "Ring has fewer than 4 points, so orientation cannot be determined");
+        }
+        int minIndex = 0;
+        for (int i = 1; i < nPts; i++) {
+            if (ring[i].compareTo(ring[minIndex]) < 0) {
+                minIndex = i;
+            }
+        }
+        int hiIndex = minIndex;
+        for (int k = 1; k < nPts; k++) {
+            int i = (minIndex + k) % nPts;
+            if (ring[i].y > ring[hiIndex].y) {
+                hiIndex = i;
+            }
+        }
+        Coordinate hiPt = ring[hiIndex];
+        int iPrev = hiIndex;
+        do {
+            iPrev = iPrev == 0 ? nPts - 1 : iPrev - 1;
+        } while (ring[iPrev].equals2D(hiPt) && iPrev != hiIndex);
+        int iNext = hiIndex;
+        do {
+            iNext = (iNext + 1) % nPts;
+        } while (ring[iNext].equals2D(hiPt) && iNext != hiIndex);
+        Coordinate prev = ring[iPrev];
+        Coordinate next = ring[iNext];
+        if (prev.equals2D(hiPt) || next.equals2D(hiPt) || prev.equals2D(next)) {
+            return false;
+        }
+        int disc = CGAlgorithms.computeOrientation(prev, hiPt, next);
+        return disc == 0 ? prev.x > next.x : disc > 0;
+    }
+    /**
+     * Same test as LineString#normalize.
+     */
+    private static boolean isReversedByNormalize(CoordinateSequence seq) {
+        for (int i = 0; i < seq.size() / 2; i++) {
+            int j = seq.size() - 1 - i;
+            double xi = seq.getX(i);
+            double yi = seq.getY(i);
+            double xj = seq.getX(j);
+            double yj = seq.getY(j);
+            if (xi != xj || yi != yj) {
+                return xi > xj || (xi == xj && yi > yj);
+            }
+        }
+        return false;
+    }
+    private static void addToBins(CoordinateSequence seq, boolean reversed, double[] bins) {
+        int binCount = bins.length;
+        double binSize = 2 * Math.PI / binCount;
+        int n = seq.size();
+        for (int k = 1; k < n; k++) {
+            int from = reversed ? n - k : k - 1;
+            int to = reversed ? n - 1 - k : k;
+            double dx = seq.getX(to) - seq.getX(from);
+            double dy = seq.getY(to) - seq.getY(from);
+            //Same arithmetic as Angle#angle, #bin and Coordinate#distance.
+            int bin = (int) Math.floor((Math.atan2(dy, dx) + Math.PI) / binSize);
+            bins[Math.min(bin, binCount - 1)] += Math.sqrt(dx * dx + dy * dy);
         }
-        return h;
     }
     /**
      * Returns the histogram bin that the angle should go into.
@@ -114,8 +114,10 @@ public class AreaFilterFCMatchFinder implements FCMatchFinder {
         Collection<Feature> targets,
         FeatureSchema matchesSchema) {
         Map<Feature, Matches> blankTargetToMatchesMap = new HashMap<>();
+        //The empty Matches cannot be modified, so it is shared by all the targets.
+        Matches blank = Matches.empty(matchesSchema);
         for (Feature target : targets) {
-            blankTargetToMatchesMap.put(target, new Matches(matchesSchema));
+            blankTargetToMatchesMap.put(target, blank);
         }
         return blankTargetToMatchesMap;
     }
@@ -32,8 +32,17 @@
 package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.vividsolutions.jump.feature.Feature;
 import com.vividsolutions.jump.feature.FeatureCollection;
@@ -44,15 +53,49 @@ import com.vividsolutions.jump.task.TaskMonitor;
  */
 public class BasicFCMatchFinder implements FCMatchFinder {
 
+    /**
+     * Number of target features below which a fork-join task is not split
+     * any further.
+     */
+    private static final int MIN_TASK_SIZE = 32;
+
+    /**
+     * Delay between two progress reports while waiting for the worker threads.
+     */
+    private static final long REPORT_INTERVAL_MILLIS = 200;
+
     /**
      * Creates a FeatureCollectionMatcher that uses the given FeatureMatcher.
      * @param matcher typically a composite of other FeatureMatchers
      */
     public BasicFCMatchFinder(FeatureMatcher matcher) {
-        this.matcher = matcher;
+        this(1, matcher);
+    }
+
+    /**
+     * Creates a FeatureCollectionMatcher that uses the given FeatureMatcher,
+     * splitting the target features across a fork-join pool.
+     * Method not part of the original JCS code.
+     * @param parallelism the number of threads to use, 1 to match on the calling
+     * thread, or 0 to use one thread per available processor
+     * @param matcher typically a composite of other FeatureMatchers. It will be
+     * called from several threads at once. It is rewritten by MatcherPlanner
+     * to run its cheapest filters first.
+     */
+    public BasicFCMatchFinder(int parallelism, FeatureMatcher matcher) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.matcher = MatcherPlanner.plan(matcher);
     }
 
     private FeatureMatcher matcher;
+    private int parallelism;
+
+    /**
+     * @return the FeatureMatcher applied to each target feature
+     */
+    public FeatureMatcher getMatcher() {
+        return matcher;
+    }
 
     @Override
     public Map<Feature, Matches> match(
@@ -61,6 +104,9 @@ public class BasicFCMatchFinder implements FCMatchFinder {
         TaskMonitor monitor) {
         monitor.allowCancellationRequests();
         monitor.report("Finding matches");
+        if (parallelism > 1 && targetFC.size() > MIN_TASK_SIZE) {
+            return parallelMatch(targetFC, candidateFC, monitor);
+        }
         Map<Feature, Matches> map = new TreeMap<>();
         int featuresProcessed = 0;
         int totalFeatures = targetFC.size();
@@ -70,8 +116,114 @@ public class BasicFCMatchFinder implements FCMatchFinder {
             Feature subjectFeature = i.next();
             featuresProcessed++;
             monitor.report(featuresProcessed, totalFeatures, "features");
-            map.put(subjectFeature, matcher.match(subjectFeature, candidateFC));
+            map.put(subjectFeature, matchTarget(subjectFeature, candidateFC));
         }
         return map;
     }
+
+    /**
+     * Applies the matcher to one target, then releases what the matchers
+     * kept about it on the current thread.
+     */
+    private Matches matchTarget(Feature target, FeatureCollection candidateFC) {
+        try {
+            return matcher.match(target, candidateFC);
+        } finally {
+            IntersectionAreas.release();
+        }
+    }
+
+    private Map<Feature, Matches> parallelMatch(
+        FeatureCollection targetFC,
+        FeatureCollection candidateFC,
+        TaskMonitor monitor) {
+        List<Feature> targets = targetFC.getFeatures();
+        Matches[] results = new Matches[targets.size()];
+        AtomicInteger featuresProcessed = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            ForkJoinTask<Void> task = pool.submit(new MatchTask(
+                targets, candidateFC, results, 0, targets.size(), featuresProcessed, cancelled));
+            //Only this thread talks to the monitor, which need not be thread-safe.
+            //The workers just count and poll the cancel flag.
+            while (!task.isDone()) {
+                monitor.report(featuresProcessed.get(), targets.size(), "features");
+                if (monitor.isCancelRequested()) {
+                    cancelled.set(true);
+                }
+                try {
+                    task.get(REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    //Not done yet: report progress again.
+                }
+            }
+            task.get();
+            monitor.report(featuresProcessed.get(), targets.size(), "features");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled.set(true);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        //Merge in target order, so that the result does not depend on the
+        //way the work was scheduled.
+        Map<Feature, Matches> map = new TreeMap<>();
+        for (int i = 0; i < results.length; i++) {
+            if (results[i] != null) {
+                map.put(targets.get(i), results[i]);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Matches the targets in [start, end), splitting the range in two until it
+     * is small enough. Each target's Matches goes in its own slot of the
+     * results array, so no synchronization is needed.
+     */
+    private class MatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<Feature> targets;
+        private final FeatureCollection candidateFC;
+        private final Matches[] results;
+        private final int start;
+        private final int end;
+        private final AtomicInteger featuresProcessed;
+        private final AtomicBoolean cancelled;
+
+        MatchTask(List<Feature> targets, FeatureCollection candidateFC, Matches[] results,
+                int start, int end, AtomicInteger featuresProcessed, AtomicBoolean cancelled) {
+            this.targets = targets;
+            this.candidateFC = candidateFC;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.featuresProcessed = featuresProcessed;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > MIN_TASK_SIZE) {
+                int middle = (start + end) >>> 1;
+                invokeAll(
+                    new MatchTask(targets, candidateFC, results, start, middle, featuresProcessed, cancelled),
+                    new MatchTask(targets, candidateFC, results, middle, end, featuresProcessed, cancelled));
+                return;
+            }
+            for (int i = start; i < end && !cancelled.get(); i++) {
+                results[i] = matchTarget(targets.get(i), candidateFC);
+                featuresProcessed.incrementAndGet();
+            }
+        }
+    }
 }
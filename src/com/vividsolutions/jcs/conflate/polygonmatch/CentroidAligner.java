@@ -1,6 +1,7 @@
 package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jump.feature.Feature;
 
 public class CentroidAligner extends IndependentCandidateMatcher {
 
@@ -10,11 +11,30 @@ public class CentroidAligner extends IndependentCandidateMatcher {
         this.matcher = matcher;
     }
 
+    /**
+     * Method not part of the original JCS code.
+     * @return the matcher run on the aligned geometries
+     */
+    public IndependentCandidateMatcher getMatcher() {
+        return matcher;
+    }
+
     @Override
     public double match(Geometry target, Geometry candidate) {
         return matcher.match(align(target), align(candidate));
     }
 
+    /**
+     * Same as #match(Geometry, Geometry), with the aligned geometries cached
+     * once per feature instead of copied for each pair.
+     * Method not part of the original JCS code.
+     */
+    @Override
+    public double match(Feature target, Feature candidate) {
+        return matcher.match(GeometryDescriptors.of(target).getCentroidAlignedGeometry(),
+            GeometryDescriptors.of(candidate).getCentroidAlignedGeometry());
+    }
+
     private Geometry align(Geometry original) {
         Geometry aligned = (Geometry) original.clone();
         MatcherUtil.align(aligned, aligned.getCentroid().getCoordinate());
@@ -1,6 +1,8 @@
 package com.vividsolutions.jcs.conflate.polygonmatch;
 
+import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jump.feature.Feature;
 
 public class CentroidDistanceMatcher extends AbstractDistanceMatcher {
 
@@ -20,4 +22,44 @@ public class CentroidDistanceMatcher extends AbstractDistanceMatcher {
         return target.getCentroid().distance(
             candidate.getCentroid());
     }
+
+    /**
+     * Method not part of the original JCS code.
+     */
+    @Override
+    protected double distance(Geometry target, Geometry candidate, double maxDistance) {
+        return distance(target.getCentroid().getCoordinate(),
+            candidate.getCentroid().getCoordinate(), maxDistance);
+    }
+
+    /**
+     * Same as #distance(Geometry, Geometry, double), with the cached centroid
+     * of each feature.
+     * Method not part of the original JCS code.
+     */
+    @Override
+    protected double distance(Feature target, Feature candidate, double maxDistance) {
+        return distance(GeometryDescriptors.of(target).getCentroid(),
+            GeometryDescriptors.of(candidate).getCentroid(), maxDistance);
+    }
+
+    /**
+     * Compares the squared distance with the squared bound, so that the
+     * square root is only taken for centroids within the bound. The bound is
+     * widened by a relative 1e-9 against the rounding of the squares.
+     */
+    private static double distance(Coordinate targetCentroid, Coordinate candidateCentroid,
+            double maxDistance) {
+        if (targetCentroid == null || candidateCentroid == null) {
+            //Distance to an empty point, see Geometry#distance.
+            return 0;
+        }
+        double dx = targetCentroid.x - candidateCentroid.x;
+        double dy = targetCentroid.y - candidateCentroid.y;
+        double squaredDistance = dx * dx + dy * dy;
+        if (squaredDistance > maxDistance * maxDistance * (1 + 1e-9)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return Math.sqrt(squaredDistance);
+    }
 }
@@ -33,6 +33,8 @@ package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import com.vividsolutions.jump.feature.Feature;
 import com.vividsolutions.jump.feature.FeatureCollection;
@@ -46,6 +48,15 @@ import com.vividsolutions.jump.feature.FeatureCollection;
  * Typically you use the Chained Matcher to do some initial filtering before
  * the "real" matching. The scores from this initial filtering are usually
  * ignored (they're usually just 1 or 0, as in the case of WindowFilter).
+ * <P>
+ * The candidates are given as is to the first FeatureMatcher, unless it needs
+ * their scores, so that a first WindowMatcher can use the spatial index of an
+ * IndexedFeatureCollection. Only the surviving candidates are copied into
+ * Matches.
+ * <P>
+ * A WeightedMatcher followed by ThresholdFilters, MinScoreMatchers or
+ * TopScoreMatchers is told the scores that will be kept, so that it can skip
+ * the candidates that cannot reach them.
  */
 public class ChainMatcher implements FeatureMatcher {
 
@@ -59,6 +70,13 @@ public class ChainMatcher implements FeatureMatcher {
 
   private ArrayList<FeatureMatcher> matchers = new ArrayList<>();
 
+  /**
+   * @return the matchers, in the order they are applied
+   */
+  public List<FeatureMatcher> getMatchers() {
+    return Collections.unmodifiableList(matchers);
+  }
+
   /**
    * Applies the FeatureMatchers, in sequence, to the list of candidates.
    * @param target the feature to match
@@ -68,11 +86,47 @@ public class ChainMatcher implements FeatureMatcher {
    */
     @Override
   public Matches match(Feature target, FeatureCollection candidates) {
-    Matches survivors = new Matches(
-        candidates.getFeatureSchema(), candidates.getFeatures());
-    for (FeatureMatcher matcher : matchers) {
-      survivors = matcher.match(target, survivors);
+    FeatureCollection survivors = candidates;
+    for (int i = 0; i < matchers.size(); i++) {
+      FeatureMatcher matcher = matchers.get(i);
+      if (!(survivors instanceof Matches) && MatcherUtil.requiresScoredCandidates(matcher)) {
+        survivors = new Matches(survivors.getFeatureSchema(), survivors.getFeatures());
+      }
+      if (matcher instanceof WeightedMatcher) {
+        survivors = matchWeighted((WeightedMatcher) matcher, i, target, survivors);
+      } else {
+        survivors = matcher.match(target, survivors);
+      }
+    }
+    if (survivors instanceof Matches) {
+      return (Matches) survivors;
+    }
+    return new Matches(survivors.getFeatureSchema(), survivors.getFeatures());
+  }
+
+  /**
+   * Runs the WeightedMatcher at the given index, with the minimum score and
+   * top-only constraints of the score filters following it.
+   */
+  private Matches matchWeighted(WeightedMatcher weighted, int index, Feature target,
+      FeatureCollection candidates) {
+    double minScore = 0;
+    boolean topOnly = false;
+    for (int i = index + 1; i < matchers.size(); i++) {
+      FeatureMatcher next = matchers.get(i);
+      if (next instanceof ThresholdFilter) {
+        minScore = Math.max(minScore, ((ThresholdFilter) next).getMinScore());
+      } else if (next instanceof MinScoreMatcher) {
+        minScore = Math.max(minScore, ((MinScoreMatcher) next).getMinScore());
+      } else if (next instanceof TopScoreMatcher || next instanceof TopScoreFilter) {
+        topOnly = true;
+      } else {
+        break;
+      }
+    }
+    if (minScore <= 0 && !topOnly) {
+      return weighted.match(target, candidates);
     }
-    return survivors;
+    return weighted.match(target, candidates, minScore, topOnly);
   }
 }
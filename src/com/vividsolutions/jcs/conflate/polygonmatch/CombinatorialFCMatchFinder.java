@@ -31,16 +31,15 @@
  */
 package com.vividsolutions.jcs.conflate.polygonmatch;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
 
-import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.util.Assert;
 import com.vividsolutions.jump.feature.BasicFeature;
@@ -52,7 +51,7 @@ import com.vividsolutions.jump.feature.IndexedFeatureCollection;
 import com.vividsolutions.jump.task.TaskMonitor;
 import com.vividsolutions.jump.util.CollectionMap;
 import com.vividsolutions.jump.util.CollectionUtil;
-import com.vividsolutions.jump.util.CoordinateArrays;
+import com.vividsolutions.jump.util.CoordinateTraversal;
 
 /**
  *  An FCMatchFinder wrapper that also treats pairs of adjacent target features
@@ -159,12 +158,7 @@ public Map<Feature, Matches> match(IndexedFeatureCollection targetFC, IndexedFea
   }
 
   protected boolean shareEdge(Geometry a, Geometry b) {
-    Set<Edge> aEdges = edges(a);
-    Set<Edge> bEdges = edges(b);
-    for (Edge bEdge : bEdges) {
-      if (aEdges.contains(bEdge)) { return true; }
-    }
-    return false;
+    return CoordinateTraversal.haveCommonSegment(a, b);
   }
 
     @Override
@@ -172,36 +166,6 @@ public Map<Feature, Matches> match(IndexedFeatureCollection targetFC, IndexedFea
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
-  private static class Edge implements Comparable<Edge> {
-    private Coordinate p0, p1;
-    public Edge(Coordinate a, Coordinate b) {
-      if (a.compareTo(b) < 1) {
-        p0 = a;
-        p1 = b;
-      }
-      else {
-        p0 = b;
-        p1 = a;
-      }
-    }
-        @Override
-    public int compareTo(Edge other) {
-      int result = p0.compareTo(other.p0);
-      if (result != 0) return result;
-      return p1.compareTo(other.p1);
-    }
-  }
-
-  private Set<Edge> edges(Geometry g) {
-    Set<Edge> edges = new TreeSet<>();
-    for (Coordinate[] coordinates : CoordinateArrays.toCoordinateArrays(g, false)) {
-      for (int j = 1; j < coordinates.length; j++) { //1
-        edges.add(new Edge(coordinates[j], coordinates[j-1]));
-      }
-    }
-    return edges;
-  }
-
   /**
    *  Splits each composite target into its constituent features.
    */
@@ -230,20 +194,13 @@ public Map<Feature, Matches> match(IndexedFeatureCollection targetFC, IndexedFea
 
   private Set<CompositeFeature> createCompositeSet(FeatureCollection fc, TaskMonitor monitor) {
     monitor.report("Creating composites of adjacent features");
-    int featuresProcessed = 0;
-    int totalFeatures = fc.getFeatures().size();
     //Use a Set to prevent duplicate composites [Jon Aquino]
-    Set<CompositeFeature> composites = new HashSet<>();
-    for (Iterator<Feature> i = fc.getFeatures().iterator(); i.hasNext() && !monitor.isCancelRequested(); ) {
-      Feature feature = i.next();
-      featuresProcessed++;
-      monitor.report(featuresProcessed, totalFeatures, "features");
-      List<Feature> featuresWithCommonEdge = featuresWithCommonEdge(feature, fc);
-      for (Iterator<List<Feature>> j = CollectionUtil.combinations(
-          featuresWithCommonEdge, maxCompositeSize, feature).iterator(); j.hasNext() && !monitor.isCancelRequested(); ) {
-        List<Feature> combination = j.next();
-        composites.add(new CompositeFeature(fc.getFeatureSchema(), combination));
-      }
+    Set<CompositeFeature> composites = new LinkedHashSet<>();
+    //Each connected set is only produced once, so no union is computed for
+    //a duplicate.
+    for (List<Feature> connectedSet : AdjacentComposites.connectedSets(fc, maxCompositeSize,
+        (a, b) -> shareEdge(a.getGeometry(), b.getGeometry()), monitor)) {
+      composites.add(new CompositeFeature(fc.getFeatureSchema(), connectedSet));
     }
     return composites;
   }
@@ -266,19 +223,20 @@ public Map<Feature, Matches> match(IndexedFeatureCollection targetFC, IndexedFea
 
   public static class CompositeFeature extends BasicFeature {
     private List<Feature> features;
+    private Feature[] key;
     private int hashCode;
 
     public CompositeFeature(FeatureSchema schema, List<Feature> features) {
       super(schema);
       this.features = features;
       Geometry union = features.get(0).getGeometry();
-      hashCode = features.get(0).hashCode();
       for (int i = 1; i < features.size(); i++) {
         Feature feature = features.get(i);
         union = union.union(feature.getGeometry());
-        hashCode = Math.min(hashCode, feature.hashCode());
       }
       setGeometry(union);
+      key = AdjacentComposites.canonicalKey(features);
+      hashCode = Arrays.hashCode(key);
     }
 
     public List<Feature> getFeatures() {
@@ -289,15 +247,7 @@ public Map<Feature, Matches> match(IndexedFeatureCollection targetFC, IndexedFea
     public boolean equals(Object obj) {
       Assert.isTrue(obj instanceof CompositeFeature, obj.getClass().toString());
       CompositeFeature other = (CompositeFeature) obj;
-      if (features.size() != other.features.size()) {
-        return false;
-      }
-      for (Feature myFeature : features) {
-        if (!other.features.contains(myFeature)) {
-          return false;
-        }
-      }
-      return true;
+      return hashCode == other.hashCode && Arrays.equals(key, other.key);
     }
 
         @Override
@@ -36,6 +36,7 @@ package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.util.Assert;
+import com.vividsolutions.jump.feature.Feature;
 
 /**
  * Uses (4 x pi x Area) / (Perimeter^2) as a shape characteristic. The
@@ -59,6 +60,20 @@ public class CompactnessMatcher extends IndependentCandidateMatcher {
     return score;
   }
 
+  /**
+   * Same as #match(Geometry, Geometry), with the cached compactness of each
+   * feature.
+   * Method not part of the original JCS code.
+   */
+  @Override
+  public double match(Feature target, Feature candidate) {
+    double score = 1 - Math.abs(GeometryDescriptors.of(target).getCompactness()
+                              - GeometryDescriptors.of(candidate).getCompactness());
+    Assert.isTrue(score >= 0);
+    Assert.isTrue(score <= 1);
+    return score;
+  }
+
   protected double characteristic(Geometry g) {
       if (g.getLength() == 0.0)
           return 1.0;
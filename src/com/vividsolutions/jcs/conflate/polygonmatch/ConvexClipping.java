@@ -0,0 +1,624 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Intersection area of a polygon and a small convex polygon by
+ * Sutherland-Hodgman clipping, much cheaper than a JTS overlay for the
+ * simple shapes of buildings. Small polygons which are not convex, such as
+ * L-shaped buildings, are split into triangles by ear clipping, and the
+ * areas clipped by each triangle added up. The areas clipped by the parts of
+ * holes are subtracted.
+ * <P>
+ * The clipped polygon need not be convex: clipping a ring against a
+ * half-plane keeps the winding number of every point inside the half-plane,
+ * and only adds edges along its boundary, so the area of the result is the
+ * area of the ring inside the half-plane. Holes are clipped separately and
+ * their area subtracted. Like Geometry#getArea, the result assumes valid
+ * polygons. It equals the overlay area up to rounding.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class ConvexClipping {
+
+  /**
+   * Largest number of distinct vertices of a ring split into convex parts.
+   * Most buildings have far fewer.
+   */
+  public static final int MAX_RING_VERTICES = 64;
+
+  /**
+   * Largest number of convex parts of a geometry. Each part clips the other
+   * geometry separately.
+   */
+  public static final int MAX_PARTS = 128;
+
+  /**
+   * Number of points above which a ring is first clipped to the envelope of
+   * the convex parts, so that the parts only clip its local vertices.
+   */
+  public static final int LARGE_RING_POINTS = 64;
+
+  /**
+   * Number of consecutive edges of a large ring summarized by one envelope
+   * (see #chunkEnvelopes).
+   */
+  private static final int CHUNK_EDGES = 32;
+
+  private double[] in = new double[64];
+  private double[] out = new double[64];
+  private double[] local = new double[64];
+  private int localCount;
+
+  private ConvexClipping() {}
+
+  /**
+   * A polygonal geometry split into convex parts: its area is the area of
+   * the parts of its shells minus the area of the parts of its holes. Each
+   * part is a counter-clockwise outline, as the x and y of each vertex in
+   * turn, without closing vertex.
+   */
+  public static class ConvexParts {
+    private final double[][] shellParts;
+    private final double[][] holeParts;
+    private final Envelope envelope = new Envelope();
+
+    ConvexParts(double[][] shellParts, double[][] holeParts) {
+      this.shellParts = shellParts;
+      this.holeParts = holeParts;
+      for (double[] part : shellParts) {
+        for (int i = 0; i < part.length; i += 2) {
+          envelope.expandToInclude(part[i], part[i + 1]);
+        }
+      }
+    }
+
+    /**
+     * @return the number of parts, which is the number of times the other
+     * geometry is clipped
+     */
+    public int size() {
+      return shellParts.length + holeParts.length;
+    }
+  }
+
+  /**
+   * Splits g into convex parts, if g is a Polygon or MultiPolygon whose
+   * rings are simple, have at most MAX_RING_VERTICES distinct vertices and
+   * give at most MAX_PARTS parts in all. A convex ring gives one part; other
+   * rings give triangles.
+   * @param g the Geometry to analyze
+   * @return the parts, or null if g cannot be split
+   */
+  public static ConvexParts convexParts(Geometry g) {
+    if (!canClip(g) || g.isEmpty()) {
+      return null;
+    }
+    List<double[]> shellParts = new ArrayList<>();
+    List<double[]> holeParts = new ArrayList<>();
+    for (int i = 0; i < g.getNumGeometries(); i++) {
+      Polygon poly = (Polygon) g.getGeometryN(i);
+      if (poly.isEmpty()) {
+        continue;
+      }
+      if (!addRingParts(poly.getExteriorRing().getCoordinateSequence(), shellParts)) {
+        return null;
+      }
+      for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+        if (!addRingParts(poly.getInteriorRingN(j).getCoordinateSequence(), holeParts)) {
+          return null;
+        }
+      }
+      if (shellParts.size() + holeParts.size() > MAX_PARTS) {
+        return null;
+      }
+    }
+    return new ConvexParts(shellParts.toArray(new double[shellParts.size()][]),
+        holeParts.toArray(new double[holeParts.size()][]));
+  }
+
+  /**
+   * Adds the convex parts of a ring to a list.
+   * @return false if the ring cannot be split
+   */
+  private static boolean addRingParts(CoordinateSequence seq, List<double[]> parts) {
+    int n = seq.size() - 1;
+    if (n < 3 || n > MAX_RING_VERTICES) {
+      return false;
+    }
+    double[] xy = new double[2 * n];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      double x = seq.getX(i);
+      double y = seq.getY(i);
+      if (count == 0 || x != xy[2 * count - 2] || y != xy[2 * count - 1]) {
+        xy[2 * count] = x;
+        xy[2 * count + 1] = y;
+        count++;
+      }
+    }
+    if (count > 1 && xy[0] == xy[2 * count - 2] && xy[1] == xy[2 * count - 1]) {
+      count--;
+    }
+    if (count < 3) {
+      return false;
+    }
+    if (count < n) {
+      xy = Arrays.copyOf(xy, 2 * count);
+    }
+    double signedArea = 0;
+    for (int i = 0; i < count; i++) {
+      int j = (i + 1) % count;
+      signedArea += xy[2 * i] * xy[2 * j + 1] - xy[2 * j] * xy[2 * i + 1];
+    }
+    if (signedArea == 0) {
+      return false;
+    }
+    if (signedArea < 0) {
+      reverse(xy, count);
+    }
+    if (isConvex(xy, count)) {
+      parts.add(xy);
+      return true;
+    }
+    if (!isSimple(xy, count)) {
+      return false;
+    }
+    double[][] triangles = triangulate(xy, count);
+    if (triangles == null) {
+      return false;
+    }
+    parts.addAll(Arrays.asList(triangles));
+    return true;
+  }
+
+  /**
+   * Returns whether the counter-clockwise ring turns left at every vertex,
+   * and changes direction along each axis only twice, which rules out star
+   * shapes.
+   */
+  private static boolean isConvex(double[] xy, int count) {
+    for (int i = 0; i < count; i++) {
+      if (cross(xy, i, (i + 1) % count, (i + 2) % count) < 0) {
+        return false;
+      }
+    }
+    return directionChanges(xy, count, 0) <= 2 && directionChanges(xy, count, 1) <= 2;
+  }
+
+  /**
+   * Returns whether no two edges of the ring meet, other than consecutive
+   * edges at their common vertex.
+   */
+  private static boolean isSimple(double[] xy, int count) {
+    for (int i = 0; i < count; i++) {
+      int i1 = (i + 1) % count;
+      //The last edge is adjacent to the first one.
+      for (int j = i + 2; j < (i == 0 ? count - 1 : count); j++) {
+        int j1 = (j + 1) % count;
+        if (edgesMeet(xy, i, i1, j, j1)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean edgesMeet(double[] xy, int a, int b, int c, int d) {
+    double abc = cross(xy, a, b, c);
+    double abd = cross(xy, a, b, d);
+    double cda = cross(xy, c, d, a);
+    double cdb = cross(xy, c, d, b);
+    if (abc == 0 && abd == 0) {
+      //Collinear: they meet if their extents overlap.
+      return Math.max(Math.min(xy[2 * a], xy[2 * b]), Math.min(xy[2 * c], xy[2 * d]))
+              <= Math.min(Math.max(xy[2 * a], xy[2 * b]), Math.max(xy[2 * c], xy[2 * d]))
+          && Math.max(Math.min(xy[2 * a + 1], xy[2 * b + 1]), Math.min(xy[2 * c + 1], xy[2 * d + 1]))
+              <= Math.min(Math.max(xy[2 * a + 1], xy[2 * b + 1]), Math.max(xy[2 * c + 1], xy[2 * d + 1]));
+    }
+    return (abc <= 0 && abd >= 0 || abc >= 0 && abd <= 0)
+        && (cda <= 0 && cdb >= 0 || cda >= 0 && cdb <= 0);
+  }
+
+  /**
+   * Splits a counter-clockwise simple ring into triangles by ear clipping.
+   * @return the triangles, or null if no ear can be found, which happens
+   * for self-intersecting rings
+   */
+  private static double[][] triangulate(double[] xy, int count) {
+    int[] next = new int[count];
+    int[] prev = new int[count];
+    for (int i = 0; i < count; i++) {
+      next[i] = (i + 1) % count;
+      prev[i] = (i + count - 1) % count;
+    }
+    List<double[]> triangles = new ArrayList<>(count - 2);
+    int remaining = count;
+    int current = 0;
+    int tried = 0;
+    while (remaining > 3) {
+      if (tried > remaining) {
+        return null;
+      }
+      int a = prev[current];
+      int b = current;
+      int c = next[current];
+      double turn = cross(xy, a, b, c);
+      boolean ear = turn > 0 && !containsOtherVertex(xy, next, a, b, c);
+      if (turn == 0 || ear) {
+        //Collinear vertices and spikes add no area and can just be removed.
+        if (ear) {
+          triangles.add(triangle(xy, a, b, c));
+        }
+        next[a] = c;
+        prev[c] = a;
+        remaining--;
+        current = a;
+        tried = 0;
+      } else {
+        current = c;
+        tried++;
+      }
+    }
+    int a = prev[current];
+    int c = next[current];
+    if (cross(xy, a, current, c) > 0) {
+      triangles.add(triangle(xy, a, current, c));
+    }
+    return triangles.isEmpty() ? null : triangles.toArray(new double[triangles.size()][]);
+  }
+
+  /**
+   * Returns whether a vertex of the ring, other than the corners, lies in
+   * or on the triangle abc.
+   */
+  private static boolean containsOtherVertex(double[] xy, int[] next, int a, int b, int c) {
+    for (int p = next[c]; p != a; p = next[p]) {
+      if ((xy[2 * p] == xy[2 * a] && xy[2 * p + 1] == xy[2 * a + 1])
+          || (xy[2 * p] == xy[2 * b] && xy[2 * p + 1] == xy[2 * b + 1])
+          || (xy[2 * p] == xy[2 * c] && xy[2 * p + 1] == xy[2 * c + 1])) {
+        continue;
+      }
+      if (cross(xy, a, b, p) >= 0 && cross(xy, b, c, p) >= 0 && cross(xy, c, a, p) >= 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static double[] triangle(double[] xy, int a, int b, int c) {
+    return new double[] {xy[2 * a], xy[2 * a + 1], xy[2 * b], xy[2 * b + 1], xy[2 * c], xy[2 * c + 1]};
+  }
+
+  /**
+   * Returns the cross product of ab and bc, positive if the path a, b, c
+   * turns left.
+   */
+  private static double cross(double[] xy, int a, int b, int c) {
+    return (xy[2 * b] - xy[2 * a]) * (xy[2 * c + 1] - xy[2 * b + 1])
+        - (xy[2 * b + 1] - xy[2 * a + 1]) * (xy[2 * c] - xy[2 * b]);
+  }
+
+  /**
+   * Returns whether #intersectionArea can clip g.
+   * @param g the Geometry to analyze
+   * @return true if g is a Polygon or MultiPolygon
+   */
+  public static boolean canClip(Geometry g) {
+    return g instanceof Polygon || g instanceof MultiPolygon;
+  }
+
+  /**
+   * Summarizes each large ring of g by the envelopes of runs of CHUNK_EDGES
+   * consecutive edges, so that #intersectionArea can skip the runs far from
+   * the convex parts without visiting their vertices.
+   * @param g a Geometry accepted by #canClip
+   * @return for each ring, in the order of #intersectionArea (shell then holes
+   * of each polygon), the minimum x, minimum y, maximum x and maximum y of
+   * each run; null for rings of at most LARGE_RING_POINTS points
+   */
+  public static double[][] chunkEnvelopes(Geometry g) {
+    List<double[]> envelopes = new ArrayList<>();
+    for (int i = 0; i < g.getNumGeometries(); i++) {
+      Polygon poly = (Polygon) g.getGeometryN(i);
+      envelopes.add(chunkEnvelopes(poly.getExteriorRing().getCoordinateSequence()));
+      for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+        envelopes.add(chunkEnvelopes(poly.getInteriorRingN(j).getCoordinateSequence()));
+      }
+    }
+    return envelopes.toArray(new double[envelopes.size()][]);
+  }
+
+  private static double[] chunkEnvelopes(CoordinateSequence ring) {
+    int n = ring.size();
+    if (n <= LARGE_RING_POINTS) {
+      return null;
+    }
+    int chunks = (n - 2) / CHUNK_EDGES + 1;
+    double[] envelopes = new double[4 * chunks];
+    for (int c = 0; c < chunks; c++) {
+      double minX = Double.POSITIVE_INFINITY;
+      double minY = Double.POSITIVE_INFINITY;
+      double maxX = Double.NEGATIVE_INFINITY;
+      double maxY = Double.NEGATIVE_INFINITY;
+      //Chunk c holds the edges from vertex c * CHUNK_EDGES, both end points
+      //included.
+      int end = Math.min(n - 1, (c + 1) * CHUNK_EDGES);
+      for (int i = c * CHUNK_EDGES; i <= end; i++) {
+        double x = ring.getX(i);
+        double y = ring.getY(i);
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+      }
+      envelopes[4 * c] = minX;
+      envelopes[4 * c + 1] = minY;
+      envelopes[4 * c + 2] = maxX;
+      envelopes[4 * c + 3] = maxY;
+    }
+    return envelopes;
+  }
+
+  /**
+   * Returns the area of the intersection of g and a polygon split into
+   * convex parts.
+   * @param g a Geometry accepted by #canClip
+   * @param convexParts the parts of the polygon, as returned by #convexParts
+   * @return the area of the intersection
+   */
+  public static double intersectionArea(Geometry g, ConvexParts convexParts) {
+    return intersectionArea(g, null, convexParts);
+  }
+
+  /**
+   * Returns the area of the intersection of g and a polygon split into
+   * convex parts. Rings of g whose envelope misses the parts are skipped, and
+   * large rings are first clipped to the envelope of the parts, so the cost
+   * depends on the part of g near the polygon rather than on all of g.
+   * @param g a Geometry accepted by #canClip
+   * @param chunkEnvelopes the chunk envelopes of g, as returned by
+   * #chunkEnvelopes, or null
+   * @param convexParts the parts of the polygon, as returned by #convexParts
+   * @return the area of the intersection
+   */
+  public static double intersectionArea(Geometry g, double[][] chunkEnvelopes,
+      ConvexParts convexParts) {
+    ConvexClipping clipping = new ConvexClipping();
+    double area = 0;
+    int ringIndex = 0;
+    for (int i = 0; i < g.getNumGeometries(); i++) {
+      Polygon poly = (Polygon) g.getGeometryN(i);
+      area += clipping.clippedArea(poly.getExteriorRing(),
+          chunkEnvelopes == null ? null : chunkEnvelopes[ringIndex], convexParts);
+      ringIndex++;
+      for (int j = 0; j < poly.getNumInteriorRing(); j++) {
+        area -= clipping.clippedArea(poly.getInteriorRingN(j),
+            chunkEnvelopes == null ? null : chunkEnvelopes[ringIndex], convexParts);
+        ringIndex++;
+      }
+    }
+    //Holes clipped separately may leave a tiny negative rounding error.
+    return Math.max(0, area);
+  }
+
+  /**
+   * Returns the area of the part of a ring inside the polygon split into
+   * convex parts.
+   */
+  private double clippedArea(LineString ring, double[] chunks, ConvexParts convexParts) {
+    Envelope partsEnvelope = convexParts.envelope;
+    //Cached by the ring, so this is cheap when the same g is clipped by many
+    //polygons.
+    if (ring.isEmpty() || !ring.getEnvelopeInternal().intersects(partsEnvelope)) {
+      return 0;
+    }
+    CoordinateSequence seq = ring.getCoordinateSequence();
+    if (seq.size() > LARGE_RING_POINTS) {
+      loadNear(seq, chunks, partsEnvelope);
+      clip(partsEnvelope.getMinX(), partsEnvelope.getMinY(), 1, 0);
+      clip(partsEnvelope.getMaxX(), partsEnvelope.getMinY(), 0, 1);
+      clip(partsEnvelope.getMaxX(), partsEnvelope.getMaxY(), -1, 0);
+      clip(partsEnvelope.getMinX(), partsEnvelope.getMaxY(), 0, -1);
+    } else {
+      load(seq);
+    }
+    if (localCount < 3) {
+      return 0;
+    }
+    if (local.length < in.length) {
+      local = new double[in.length];
+    }
+    double[] swap = local;
+    local = in;
+    in = swap;
+    double area = 0;
+    for (double[] part : convexParts.shellParts) {
+      area += clippedLocalArea(part);
+    }
+    for (double[] part : convexParts.holeParts) {
+      area -= clippedLocalArea(part);
+    }
+    return area;
+  }
+
+  /**
+   * Returns the unsigned area of the local ring clipped by a convex part.
+   */
+  private double clippedLocalArea(double[] part) {
+    System.arraycopy(local, 0, in, 0, 2 * localCount);
+    int inCount = localCount;
+    for (int c = 0; c < part.length / 2 && inCount > 0; c++) {
+      double ax = part[2 * c];
+      double ay = part[2 * c + 1];
+      inCount = clip(inCount, ax, ay,
+          part[(2 * c + 2) % part.length] - ax, part[(2 * c + 3) % part.length] - ay);
+    }
+    return area(inCount);
+  }
+
+  /**
+   * Copies the ring, without closing vertex, to the input buffer.
+   */
+  private void load(CoordinateSequence seq) {
+    int count = Math.max(0, seq.size() - 1);
+    ensureCapacity(count);
+    for (int i = 0; i < count; i++) {
+      in[2 * i] = seq.getX(i);
+      in[2 * i + 1] = seq.getY(i);
+    }
+    localCount = count;
+  }
+
+  /**
+   * Copies the ring to the input buffer, replacing each chunk lying entirely
+   * on the outer side of a side of the envelope by its first vertex. Clipping
+   * against that side removes the other vertices of the chunk anyway, and the
+   * edges entering and leaving the chunk are kept, so the clipped area does
+   * not change.
+   */
+  private void loadNear(CoordinateSequence seq, double[] chunks, Envelope env) {
+    if (chunks == null) {
+      load(seq);
+      return;
+    }
+    int n = seq.size() - 1;
+    ensureCapacity(n);
+    int count = 0;
+    for (int c = 0; 4 * c < chunks.length; c++) {
+      int start = c * CHUNK_EDGES;
+      boolean far = chunks[4 * c + 2] < env.getMinX() || chunks[4 * c] > env.getMaxX()
+          || chunks[4 * c + 3] < env.getMinY() || chunks[4 * c + 1] > env.getMaxY();
+      int end = far ? start + 1 : Math.min(n, start + CHUNK_EDGES);
+      for (int i = start; i < end; i++) {
+        in[2 * count] = seq.getX(i);
+        in[2 * count + 1] = seq.getY(i);
+        count++;
+      }
+    }
+    localCount = count;
+  }
+
+  /**
+   * Clips the input buffer to the left side of the line through (ax, ay)
+   * with direction (ex, ey).
+   */
+  private void clip(double ax, double ay, double ex, double ey) {
+    localCount = clip(localCount, ax, ay, ex, ey);
+  }
+
+  /**
+   * Clips the first inCount vertices of the input buffer to the left side of
+   * the line through (ax, ay) with direction (ex, ey), Sutherland-Hodgman
+   * style, and makes the result the new input.
+   * @return the number of vertices left
+   */
+  private int clip(int inCount, double ax, double ay, double ex, double ey) {
+    if (inCount == 0) {
+      return 0;
+    }
+    //Each input vertex adds at most itself and one intersection point.
+    ensureCapacity(2 * inCount);
+    int outCount = 0;
+    double sx = in[2 * inCount - 2];
+    double sy = in[2 * inCount - 1];
+    double sSide = ex * (sy - ay) - ey * (sx - ax);
+    for (int i = 0; i < inCount; i++) {
+      double px = in[2 * i];
+      double py = in[2 * i + 1];
+      double pSide = ex * (py - ay) - ey * (px - ax);
+      if ((pSide >= 0) != (sSide >= 0)) {
+        double t = sSide / (sSide - pSide);
+        out[2 * outCount] = sx + t * (px - sx);
+        out[2 * outCount + 1] = sy + t * (py - sy);
+        outCount++;
+      }
+      if (pSide >= 0) {
+        out[2 * outCount] = px;
+        out[2 * outCount + 1] = py;
+        outCount++;
+      }
+      sx = px;
+      sy = py;
+      sSide = pSide;
+    }
+    double[] swap = in;
+    in = out;
+    out = swap;
+    return outCount;
+  }
+
+  /**
+   * Returns the unsigned area of the first count vertices of the input
+   * buffer, by the shoelace formula relative to the first vertex for
+   * accuracy.
+   */
+  private double area(int count) {
+    if (count < 3) {
+      return 0;
+    }
+    double x0 = in[0];
+    double y0 = in[1];
+    double sum = 0;
+    for (int i = 1; i < count - 1; i++) {
+      sum += (in[2 * i] - x0) * (in[2 * i + 3] - y0) - (in[2 * i + 2] - x0) * (in[2 * i + 1] - y0);
+    }
+    return Math.abs(sum) / 2;
+  }
+
+  private void ensureCapacity(int vertexCount) {
+    if (in.length < 2 * vertexCount) {
+      double[] grown = new double[2 * vertexCount];
+      System.arraycopy(in, 0, grown, 0, in.length);
+      in = grown;
+      out = new double[2 * vertexCount];
+    } else if (out.length < 2 * vertexCount) {
+      out = new double[2 * vertexCount];
+    }
+  }
+
+  /**
+   * Returns the number of times the edges of the ring go back along the given
+   * axis, 0 for x and 1 for y. Edges perpendicular to the axis are ignored.
+   */
+  private static int directionChanges(double[] xy, int count, int axis) {
+    boolean lastPositive = false;
+    boolean started = false;
+    int changes = 0;
+    //Twice around, counting the second time only, so that the change between
+    //the last and the first edges is seen.
+    for (int k = 0; k < 2 * count; k++) {
+      int i = k % count;
+      int j = (k + 1) % count;
+      double d = xy[2 * j + axis] - xy[2 * i + axis];
+      if (d != 0) {
+        if (started && (d > 0) != lastPositive && k >= count) {
+          changes++;
+        }
+        lastPositive = d > 0;
+        started = true;
+      }
+    }
+    return changes;
+  }
+
+  private static void reverse(double[] xy, int count) {
+    for (int i = 0, j = count - 1; i < j; i++, j--) {
+      double x = xy[2 * i];
+      double y = xy[2 * i + 1];
+      xy[2 * i] = xy[2 * j];
+      xy[2 * i + 1] = xy[2 * j + 1];
+      xy[2 * j] = x;
+      xy[2 * j + 1] = y;
+    }
+  }
+}
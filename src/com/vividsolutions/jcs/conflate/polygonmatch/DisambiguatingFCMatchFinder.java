@@ -1,11 +1,11 @@
 package com.vividsolutions.jcs.conflate.polygonmatch;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.SortedSet;
 
 import com.vividsolutions.jump.feature.Feature;
 import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.feature.FeatureSchema;
 import com.vividsolutions.jump.task.TaskMonitor;
 /**
  * Enforces a one-to-one relationship between target features and
@@ -13,42 +13,63 @@ import com.vividsolutions.jump.task.TaskMonitor;
  * "Aggressive" because 2nd, 3rd, 4th, etc. best
  * matches are tried if the 1st, 2nd, 3rd, etc. match is "taken" by another
  * feature.
+ * <P>
+ * A match can only be taken by a feature of the same connected component
+ * of the matches, so the components are disambiguated independently, in
+ * parallel (see MatchComponents).
  */
 public class DisambiguatingFCMatchFinder implements FCMatchFinder {
     private FCMatchFinder matchFinder;
     public DisambiguatingFCMatchFinder(FCMatchFinder matchFinder) {
         this.matchFinder = matchFinder;
     }
+    /**
+     * @return the FCMatchFinder whose matches are filtered
+     */
+    public FCMatchFinder getMatchFinder() {
+        return matchFinder;
+    }
     @Override
     public Map<Feature, Matches> match(
         FeatureCollection targetFC,
         FeatureCollection candidateFC,
         TaskMonitor monitor) {
-        List<Feature> targets = new ArrayList<>();
-        List<Feature> candidates = new ArrayList<>();
-        List<Double> scores = new ArrayList<>();
-        SortedSet<DisambiguationMatch> matchSet = DisambiguationMatch.createDisambiguationMatches(matchFinder.match(targetFC, candidateFC, monitor), monitor);
+        Map<Feature, Matches> originalTargetToMatchesMap = matchFinder.match(targetFC, candidateFC, monitor);
         monitor.report("Discarding inferior matches");
-        int j = 0;
-        for (DisambiguationMatch match : matchSet) {
-            monitor.report(++j, matchSet.size(), "matches");
-            if (targets.contains(match.getTarget()) || candidates.contains(match.getCandidate())) {
-                continue;
-            }
-            targets.add(match.getTarget());
-            candidates.add(match.getCandidate());
-            scores.add(Double.valueOf(match.getScore()));
-        }
+        FeatureSchema schema = candidateFC.getFeatureSchema();
+        Map<Feature, Matches> disambiguatedTargetToMatchesMap = MatchComponents.resolve(
+            originalTargetToMatchesMap,
+            (component, componentMonitor) -> disambiguate(component, schema),
+            monitor);
         //Re-add filtered-out targets, but with zero-score matches [Jon Aquino]
         Map<Feature, Matches> targetToMatchesMap =
             AreaFilterFCMatchFinder.blankTargetToMatchesMap(
                 targetFC.getFeatures(),
                 candidateFC.getFeatureSchema());
-        for (int i = 0; i < targets.size(); i++) {
-            Matches matches = new Matches(candidateFC.getFeatureSchema());
-            matches.add(candidates.get(i), scores.get(i).doubleValue());
-            targetToMatchesMap.put(targets.get(i), matches);
-        }
+        targetToMatchesMap.putAll(disambiguatedTargetToMatchesMap);
         return targetToMatchesMap;
     }
+
+    /**
+     * Keeps the best remaining match, until every target or candidate is
+     * taken.
+     */
+    private static Map<Feature, Matches> disambiguate(Map<Feature, Matches> targetToMatchesMap,
+        FeatureSchema schema) {
+        Map<Feature, Matches> disambiguated = new HashMap<>();
+        ScoredPairs pairs = ScoredPairs.create(targetToMatchesMap);
+        BitSet takenTargets = new BitSet(pairs.getTargetCount());
+        BitSet takenCandidates = new BitSet(pairs.getCandidateCount());
+        for (int j = 0; j < pairs.size(); j++) {
+            if (takenTargets.get(pairs.getTargetIndex(j)) || takenCandidates.get(pairs.getCandidateIndex(j))) {
+                continue;
+            }
+            takenTargets.set(pairs.getTargetIndex(j));
+            takenCandidates.set(pairs.getCandidateIndex(j));
+            Matches matches = new Matches(schema);
+            matches.add(pairs.getCandidate(j), pairs.getScore(j));
+            disambiguated.put(pairs.getTarget(j), matches);
+        }
+        return disambiguated;
+    }
 }
@@ -0,0 +1,215 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jump.feature.AbstractBasicFeature;
+import com.vividsolutions.jump.feature.Feature;
+
+/**
+ * Properties of a feature's geometry used by the matchers: area, length,
+ * centroid, compactness, angle histogram, outline centre of mass,
+ * centroid-aligned copy, convex parts and chunk envelopes. Each one
+ * is computed the first time it is asked for, then reused for every candidate
+ * pair the feature takes part in, by every matcher.
+ * <P>
+ * The descriptors are attached to the feature (see #of). They are computed
+ * again if the feature is given a new geometry, but not if its geometry is
+ * modified in place. Several threads may compute the same value at the same
+ * time; they get the same result, so the last one written wins harmlessly.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class GeometryDescriptors {
+
+  /**
+   * Marks a centroid computed for an empty geometry, which has none.
+   */
+  private static final Coordinate NO_CENTROID = new Coordinate(Double.NaN, Double.NaN);
+
+  /**
+   * Marks convex parts computed for a geometry which cannot be split.
+   */
+  private static final ConvexClipping.ConvexParts NO_CONVEX_PARTS =
+      new ConvexClipping.ConvexParts(new double[0][], new double[0][]);
+
+  private final Geometry geometry;
+  private volatile double area = Double.NaN;
+  private volatile double length = Double.NaN;
+  private volatile double compactness = Double.NaN;
+  private volatile Coordinate centroid;
+  private volatile Coordinate outlineCentreOfMass;
+  private volatile double[] angleHistogram;
+  private volatile Geometry centroidAligned;
+  private volatile ConvexClipping.ConvexParts convexParts;
+  private volatile double[][] chunkEnvelopes;
+
+  /**
+   * Creates descriptors not attached to any feature.
+   * @param geometry the geometry to describe
+   */
+  public GeometryDescriptors(Geometry geometry) {
+    this.geometry = geometry;
+  }
+
+  /**
+   * Returns the descriptors of the feature's current geometry, creating and
+   * attaching them if needed. Features not derived from AbstractBasicFeature
+   * cannot hold them, and get new descriptors on each call.
+   * @param feature the feature to describe
+   * @return the descriptors of the feature geometry
+   */
+  public static GeometryDescriptors of(Feature feature) {
+    Geometry geometry = feature.getGeometry();
+    if (!(feature instanceof AbstractBasicFeature)) {
+      return new GeometryDescriptors(geometry);
+    }
+    AbstractBasicFeature basicFeature = (AbstractBasicFeature) feature;
+    Object cached = basicFeature.getGeometryDescriptors();
+    if (cached instanceof GeometryDescriptors
+        && ((GeometryDescriptors) cached).geometry == geometry) {
+      return (GeometryDescriptors) cached;
+    }
+    GeometryDescriptors descriptors = new GeometryDescriptors(geometry);
+    basicFeature.setGeometryDescriptors(descriptors);
+    return descriptors;
+  }
+
+  /**
+   * @return the described geometry
+   */
+  public Geometry getGeometry() {
+    return geometry;
+  }
+
+  /**
+   * @return the area of the geometry
+   */
+  public double getArea() {
+    double value = area;
+    if (Double.isNaN(value)) {
+      value = geometry.getArea();
+      area = value;
+    }
+    return value;
+  }
+
+  /**
+   * @return the length (perimeter for polygons) of the geometry
+   */
+  public double getLength() {
+    double value = length;
+    if (Double.isNaN(value)) {
+      value = geometry.getLength();
+      length = value;
+    }
+    return value;
+  }
+
+  /**
+   * Returns (4 x pi x Area) / (Perimeter^2), the shape characteristic of
+   * CompactnessMatcher.
+   * @return the compactness, 1 for a circle or a geometry without length
+   */
+  public double getCompactness() {
+    double value = compactness;
+    if (Double.isNaN(value)) {
+      value = getLength() == 0.0 ? 1.0 : 4 * Math.PI * getArea() / Math.pow(getLength(), 2);
+      compactness = value;
+    }
+    return value;
+  }
+
+  /**
+   * @return the centroid of the geometry, or null if the geometry is empty
+   */
+  public Coordinate getCentroid() {
+    Coordinate value = centroid;
+    if (value == null) {
+      value = geometry.getCentroid().getCoordinate();
+      if (value == null) {
+        value = NO_CENTROID;
+      }
+      centroid = value;
+    }
+    return value == NO_CENTROID ? null : value;
+  }
+
+  /**
+   * @return the convex parts of the geometry if it is made of small simple
+   * polygons, or null
+   * @see ConvexClipping#convexParts(Geometry)
+   */
+  public ConvexClipping.ConvexParts getConvexParts() {
+    ConvexClipping.ConvexParts value = convexParts;
+    if (value == null) {
+      value = ConvexClipping.convexParts(geometry);
+      if (value == null) {
+        value = NO_CONVEX_PARTS;
+      }
+      convexParts = value;
+    }
+    return value == NO_CONVEX_PARTS ? null : value;
+  }
+
+  /**
+   * @return the envelopes of runs of edges of the large rings of the
+   * geometry, which must not be modified
+   * @see ConvexClipping#chunkEnvelopes(Geometry)
+   */
+  public double[][] getChunkEnvelopes() {
+    double[][] value = chunkEnvelopes;
+    if (value == null) {
+      value = ConvexClipping.chunkEnvelopes(geometry);
+      chunkEnvelopes = value;
+    }
+    return value;
+  }
+
+  /**
+   * @return the centre of mass of the geometry outline
+   * @see MatcherUtil#outlineCentreOfMass(Geometry)
+   */
+  public Coordinate getOutlineCentreOfMass() {
+    Coordinate value = outlineCentreOfMass;
+    if (value == null) {
+      value = MatcherUtil.outlineCentreOfMass(geometry);
+      outlineCentreOfMass = value;
+    }
+    return value;
+  }
+
+  /**
+   * Returns a copy of the geometry moved so that its centroid is at (0,0),
+   * as compared by CentroidAligner. The copy is kept as long as the
+   * descriptors.
+   * @return the centroid-aligned geometry, which must not be modified
+   */
+  public Geometry getCentroidAlignedGeometry() {
+    Geometry value = centroidAligned;
+    if (value == null) {
+      value = (Geometry) geometry.clone();
+      Coordinate centre = getCentroid();
+      if (centre != null) {
+        MatcherUtil.align(value, centre);
+      }
+      centroidAligned = value;
+    }
+    return value;
+  }
+
+  /**
+   * Returns the bin scores of the angle histogram of the normalized
+   * geometry. Only the histogram for the last bin count asked for is kept.
+   * @param binCount the number of bins into which -pi to +pi is split
+   * @return the bin scores, which must not be modified
+   * @see AngleHistogramMatcher#angleHistogramBins(Geometry, int)
+   */
+  public double[] getAngleHistogram(int binCount) {
+    double[] value = angleHistogram;
+    if (value == null || value.length != binCount) {
+      value = AngleHistogramMatcher.angleHistogramBins(geometry, binCount);
+      angleHistogram = value;
+    }
+    return value;
+  }
+}
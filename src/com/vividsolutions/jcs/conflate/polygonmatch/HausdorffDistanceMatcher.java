@@ -25,4 +25,13 @@ public class HausdorffDistanceMatcher extends AbstractDistanceMatcher {
         return new VertexHausdorffDistance(target, candidate).distance();
     }
 
+    /**
+     * Stops measuring the vertices once the maximum is reached.
+     * Method not part of the original JCS code.
+     */
+    @Override
+    protected double distance(Geometry target, Geometry candidate, double maxDistance) {
+        return VertexHausdorffDistance.distance(target, candidate, maxDistance);
+    }
+
 }
@@ -48,7 +48,7 @@ public abstract class IndependentCandidateMatcher implements FeatureMatcher {
   public Matches match(Feature target, FeatureCollection candidates) {
     Matches matches = new Matches(candidates.getFeatureSchema());
     for (Feature candidate : candidates) {
-      double score = match(target.getGeometry(), candidate.getGeometry());
+      double score = match(target, candidate);
       if (score > 0) { matches.add(candidate, score); }
     }
     return matches;
@@ -56,7 +56,20 @@ public abstract class IndependentCandidateMatcher implements FeatureMatcher {
 
   /**
    * Compares the target to the candidate feature. Called for each candidate
-   * feature by #match(Feature, FeatureCollection).
+   * feature by #match(Feature, FeatureCollection). Subclasses override it to
+   * reuse the GeometryDescriptors of the features.
+   * Method not part of the original JCS code.
+   * @param target the feature to match
+   * @param candidate the feature to compare with the target
+   * @return a score from 0 to 1 indicating how well the candidate matches the
+   * target
+   */
+  public double match(Feature target, Feature candidate) {
+    return match(target.getGeometry(), candidate.getGeometry());
+  }
+
+  /**
+   * Compares the target to the candidate geometry.
    * @param target the feature to match
    * @param candidate the feature to compare with the target
    * @return a score from 0 to 1 indicating how well the candidate matches the
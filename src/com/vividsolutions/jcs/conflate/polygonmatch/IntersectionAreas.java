@@ -0,0 +1,232 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jump.feature.Feature;
+
+/**
+ * Computes the area of the intersection of a target with each of its
+ * candidates, the one overlay result both OverlapMatcher and SymDiffMatcher
+ * need: the symmetric difference area is the sum of the two areas minus twice
+ * the intersection area.
+ * <P>
+ * The area is 0 without overlay when the envelopes do not overlap. When
+ * one of the two is made of small simple polygons, the other one is clipped
+ * by their convex parts (see ConvexClipping), which only looks at the
+ * vertices of the other one near their envelope. Otherwise, the area is 0 when the prepared
+ * target does not intersect the candidate, and a candidate covering or
+ * covered by the target intersects it with the smaller area. The remaining
+ * pairs go through a full intersection, after dropping the polygons and holes
+ * of each geometry lying away from the envelope of the other one.
+ * <P>
+ * Each thread keeps the areas computed for its current target, so that
+ * several matchers evaluating the same target share them. They are
+ * discarded when the thread moves to another target, or by #release(),
+ * which BasicFCMatchFinder calls once each target is matched.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class IntersectionAreas {
+
+  private static final ThreadLocal<IntersectionAreas> CURRENT =
+      ThreadLocal.withInitial(IntersectionAreas::new);
+
+  private GeometryDescriptors targetDescriptors;
+  private PreparedTarget prepared;
+  private final Map<Geometry, Double> areas = new IdentityHashMap<>();
+
+  private IntersectionAreas() {}
+
+  /**
+   * Returns the intersection areas of the given target for the current
+   * thread, keeping those already computed if the target has not changed.
+   * @param target the feature to match
+   * @return the intersection areas of the target
+   */
+  public static IntersectionAreas forTarget(Feature target) {
+    IntersectionAreas current = CURRENT.get();
+    GeometryDescriptors descriptors = GeometryDescriptors.of(target);
+    if (current.targetDescriptors != descriptors) {
+      current.targetDescriptors = descriptors;
+      current.prepared = null;
+      current.areas.clear();
+    }
+    return current;
+  }
+
+  /**
+   * Discards the areas kept for the current thread's target, so that a
+   * long-lived thread does not keep its last target alive. Code applying
+   * OverlapMatcher or SymDiffMatcher outside of BasicFCMatchFinder should
+   * call it when done with a target.
+   */
+  public static void release() {
+    CURRENT.remove();
+  }
+
+  /**
+   * @return the descriptors of the target
+   */
+  public GeometryDescriptors getTargetDescriptors() {
+    return targetDescriptors;
+  }
+
+  /**
+   * @param candidate the feature to compare with the target
+   * @return the area of the intersection of the target and the candidate
+   */
+  public double get(Feature candidate) {
+    GeometryDescriptors candidateDescriptors = GeometryDescriptors.of(candidate);
+    Geometry candidateGeometry = candidateDescriptors.getGeometry();
+    Double area = areas.get(candidateGeometry);
+    if (area == null) {
+      area = Double.valueOf(compute(candidateDescriptors));
+      areas.put(candidateGeometry, area);
+    }
+    return area.doubleValue();
+  }
+
+  private double compute(GeometryDescriptors candidateDescriptors) {
+    Geometry target = targetDescriptors.getGeometry();
+    Geometry candidate = candidateDescriptors.getGeometry();
+    if (upperBound(target, candidate) == 0) {
+      return 0;
+    }
+    double clipped = clippedArea(targetDescriptors, candidateDescriptors, true);
+    if (!Double.isNaN(clipped)) {
+      return clipped;
+    }
+    if (prepared == null) {
+      prepared = new PreparedTarget(target);
+    }
+    if (!prepared.intersects(candidate)) {
+      return 0;
+    }
+    if (prepared.covers(candidate)) {
+      return candidateDescriptors.getArea();
+    }
+    if (prepared.isCoveredBy(candidate)) {
+      return targetDescriptors.getArea();
+    }
+    return overlayArea(target, candidate);
+  }
+
+  /**
+   * Computes the intersection area of two geometries, without caching.
+   * @param target the target geometry
+   * @param candidate the candidate geometry
+   * @return the area of the intersection of the target and the candidate
+   */
+  public static double compute(Geometry target, Geometry candidate) {
+    if (upperBound(target, candidate) == 0) {
+      return 0;
+    }
+    double clipped = clippedArea(new GeometryDescriptors(target),
+        new GeometryDescriptors(candidate), false);
+    if (!Double.isNaN(clipped)) {
+      return clipped;
+    }
+    return overlayArea(target, candidate);
+  }
+
+  /**
+   * Clips one geometry by the convex parts of the other one, using the
+   * fewer parts. The chunk envelopes of the clipped geometry are only worth
+   * computing if they are kept for the next pairs.
+   * @return the intersection area, or NaN if neither can clip the other
+   */
+  private static double clippedArea(GeometryDescriptors target, GeometryDescriptors candidate,
+      boolean useChunkEnvelopes) {
+    ConvexClipping.ConvexParts targetParts = target.getConvexParts();
+    ConvexClipping.ConvexParts candidateParts = candidate.getConvexParts();
+    boolean byTarget = targetParts != null && ConvexClipping.canClip(candidate.getGeometry());
+    boolean byCandidate = candidateParts != null && ConvexClipping.canClip(target.getGeometry());
+    if (byTarget && (!byCandidate || targetParts.size() <= candidateParts.size())) {
+      return ConvexClipping.intersectionArea(candidate.getGeometry(),
+          useChunkEnvelopes ? candidate.getChunkEnvelopes() : null, targetParts);
+    }
+    if (byCandidate) {
+      return ConvexClipping.intersectionArea(target.getGeometry(),
+          useChunkEnvelopes ? target.getChunkEnvelopes() : null, candidateParts);
+    }
+    return Double.NaN;
+  }
+
+  /**
+   * Computes the intersection area by overlay, once each geometry is reduced
+   * to the polygons and holes near the envelope of the other one.
+   */
+  private static double overlayArea(Geometry target, Geometry candidate) {
+    return dropAwayFrom(target, candidate.getEnvelopeInternal())
+        .intersection(dropAwayFrom(candidate, target.getEnvelopeInternal()))
+        .getArea();
+  }
+
+  /**
+   * Removes from a polygonal geometry the polygons and the holes whose
+   * envelope does not intersect env. Filling a hole or removing a polygon
+   * only changes g outside env, so the intersection of g with any geometry
+   * within env is unchanged.
+   * @return g itself if nothing can be removed or g is not polygonal
+   */
+  private static Geometry dropAwayFrom(Geometry g, Envelope env) {
+    if (g instanceof Polygon) {
+      return dropHolesAwayFrom((Polygon) g, env);
+    }
+    if (!(g instanceof MultiPolygon)) {
+      return g;
+    }
+    List<Polygon> kept = new ArrayList<>();
+    boolean changed = false;
+    for (int i = 0; i < g.getNumGeometries(); i++) {
+      Polygon poly = (Polygon) g.getGeometryN(i);
+      if (poly.getEnvelopeInternal().intersects(env)) {
+        Polygon reduced = dropHolesAwayFrom(poly, env);
+        changed |= reduced != poly;
+        kept.add(reduced);
+      } else {
+        changed = true;
+      }
+    }
+    return changed
+        ? g.getFactory().createMultiPolygon(kept.toArray(new Polygon[kept.size()]))
+        : g;
+  }
+
+  private static Polygon dropHolesAwayFrom(Polygon poly, Envelope env) {
+    List<LinearRing> holes = new ArrayList<>();
+    for (int i = 0; i < poly.getNumInteriorRing(); i++) {
+      LineString hole = poly.getInteriorRingN(i);
+      if (hole.getEnvelopeInternal().intersects(env)) {
+        holes.add((LinearRing) hole);
+      }
+    }
+    if (holes.size() == poly.getNumInteriorRing()) {
+      return poly;
+    }
+    return poly.getFactory().createPolygon((LinearRing) poly.getExteriorRing(),
+        holes.toArray(new LinearRing[holes.size()]));
+  }
+
+  /**
+   * Returns the area of the intersection of the envelopes, which the
+   * intersection of the geometries cannot exceed.
+   * @param target the target geometry
+   * @param candidate the candidate geometry
+   * @return an upper bound of the intersection area, 0 if the envelopes do
+   * not overlap
+   */
+  public static double upperBound(Geometry target, Geometry candidate) {
+    Envelope overlap = target.getEnvelopeInternal().intersection(candidate.getEnvelopeInternal());
+    return overlap.isNull() ? 0 : overlap.getArea();
+  }
+}
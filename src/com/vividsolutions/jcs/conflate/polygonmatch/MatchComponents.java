@@ -0,0 +1,318 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.task.TaskMonitor;
+
+/**
+ * Splits a target-to-Matches map into the connected components of its graph
+ * of matches, so that a one-to-one finder can resolve each component
+ * independently. A target and a candidate are connected when the candidate
+ * is one of the target's matches; two targets sharing a candidate, or two
+ * candidates sharing a target, are thus in the same component. Targets
+ * without matches belong to no component.
+ * <P>
+ * Components are found with a union-find over dense indices (equal features
+ * sharing the same index, see Object#equals). They are resolved in parallel
+ * when there are enough matches, each component map being built only when
+ * its turn comes, and the results are merged in the order of the smallest
+ * target of each component (see Feature#compareTo), whatever the order in
+ * which they were computed. A component made of a single match is kept as is.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+class MatchComponents {
+
+    /**
+     * Resolves one component. Called from worker threads: it must only
+     * read the component, and the monitor it is given only reports
+     * cancellation.
+     */
+    interface Resolver {
+        /**
+         * @param component the matches of the targets of one component
+         * @param monitor reports cancellation
+         * @return the matches kept for the targets of the component
+         */
+        Map<Feature, Matches> resolve(Map<Feature, Matches> component, TaskMonitor monitor);
+    }
+
+    /**
+     * Number of matches below which the components are resolved on the
+     * calling thread.
+     */
+    private static final int MIN_PARALLEL_MATCHES = 4096;
+
+    /**
+     * Number of matches of the components a single task resolves.
+     */
+    private static final int MIN_TASK_MATCHES = 512;
+
+    /**
+     * Delay between two progress reports while waiting for the worker threads.
+     */
+    private static final long REPORT_INTERVAL_MILLIS = 200;
+
+    private final List<Map.Entry<Feature, Matches>> entries;
+    /** Indices into entries of the targets of each component, component after component */
+    private final int[] members;
+    /** Start of each component in members, followed by members.length */
+    private final int[] componentStart;
+    /** Number of matches of the components before each component */
+    private final long[] matchesBefore;
+
+    private MatchComponents(Map<Feature, Matches> targetToMatchesMap) {
+        entries = new ArrayList<>();
+        for (Map.Entry<Feature, Matches> entry : targetToMatchesMap.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                entries.add(entry);
+            }
+        }
+        //Node i is the target of entry i, the candidates come after the targets.
+        Map<Feature, Integer> candidateIndices = new HashMap<>();
+        UnionFind unionFind = new UnionFind();
+        for (int i = 0; i < entries.size(); i++) {
+            Matches matches = entries.get(i).getValue();
+            for (int j = 0; j < matches.size(); j++) {
+                unionFind.union(i, entries.size() + index(candidateIndices, matches.getFeature(j)));
+            }
+        }
+        //Order the components by their smallest target, and their targets
+        //by entry order.
+        Integer[] order = new Integer[entries.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = Integer.valueOf(i);
+        }
+        Arrays.sort(order, (a, b) -> entries.get(a.intValue()).getKey()
+            .compareTo(entries.get(b.intValue()).getKey()));
+        Map<Integer, List<Integer>> componentMembers = new LinkedHashMap<>();
+        for (Integer i : order) {
+            Integer root = Integer.valueOf(unionFind.find(i.intValue()));
+            List<Integer> list = componentMembers.get(root);
+            if (list == null) {
+                list = new ArrayList<>();
+                componentMembers.put(root, list);
+            }
+            list.add(i);
+        }
+        members = new int[entries.size()];
+        componentStart = new int[componentMembers.size() + 1];
+        matchesBefore = new long[componentMembers.size() + 1];
+        int component = 0;
+        int m = 0;
+        for (List<Integer> list : componentMembers.values()) {
+            list.sort(null);
+            long matchCount = 0;
+            for (Integer i : list) {
+                members[m++] = i.intValue();
+                matchCount += entries.get(i.intValue()).getValue().size();
+            }
+            component++;
+            componentStart[component] = m;
+            matchesBefore[component] = matchesBefore[component - 1] + matchCount;
+        }
+    }
+
+    private static int index(Map<Feature, Integer> indices, Feature feature) {
+        Integer index = indices.get(feature);
+        if (index == null) {
+            index = Integer.valueOf(indices.size());
+            indices.put(feature, index);
+        }
+        return index.intValue();
+    }
+
+    /**
+     * Resolves each component of the map.
+     * @param targetToMatchesMap the matches of each target
+     * @param resolver resolves a single component
+     * @param monitor reports the components resolved
+     * @return the results of the resolver, merged
+     */
+    static Map<Feature, Matches> resolve(
+        Map<Feature, Matches> targetToMatchesMap,
+        Resolver resolver,
+        TaskMonitor monitor) {
+        MatchComponents components = new MatchComponents(targetToMatchesMap);
+        int componentCount = components.componentStart.length - 1;
+        List<Map<Feature, Matches>> results = new ArrayList<>(Collections.nCopies(componentCount, null));
+        AtomicBoolean cancelled = new AtomicBoolean();
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        if (parallelism > 1 && components.matchesBefore[componentCount] >= MIN_PARALLEL_MATCHES) {
+            components.resolveInParallel(resolver, results, parallelism, cancelled, monitor);
+        } else {
+            TaskMonitor workerMonitor = new WorkerMonitor(cancelled);
+            for (int c = 0; c < componentCount && !cancelled.get(); c++) {
+                monitor.report(c + 1, componentCount, "components");
+                results.set(c, components.resolve(c, resolver, workerMonitor));
+                if (monitor.isCancelRequested()) {
+                    cancelled.set(true);
+                }
+            }
+        }
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        for (Map<Feature, Matches> result : results) {
+            if (result != null) {
+                map.putAll(result);
+            }
+        }
+        return map;
+    }
+
+    private Map<Feature, Matches> resolve(int component, Resolver resolver, TaskMonitor monitor) {
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        for (int m = componentStart[component]; m < componentStart[component + 1]; m++) {
+            Map.Entry<Feature, Matches> entry = entries.get(members[m]);
+            map.put(entry.getKey(), entry.getValue());
+        }
+        if (matchesBefore[component + 1] - matchesBefore[component] == 1) {
+            return map;
+        }
+        return resolver.resolve(map, monitor);
+    }
+
+    private void resolveInParallel(
+        Resolver resolver,
+        List<Map<Feature, Matches>> results,
+        int parallelism,
+        AtomicBoolean cancelled,
+        TaskMonitor monitor) {
+        AtomicInteger componentsResolved = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            ForkJoinTask<Void> task = pool.submit(new ResolveTask(
+                resolver, results, 0, results.size(), componentsResolved, cancelled));
+            //Only this thread talks to the monitor, which need not be thread-safe.
+            while (!task.isDone()) {
+                monitor.report(componentsResolved.get(), results.size(), "components");
+                if (monitor.isCancelRequested()) {
+                    cancelled.set(true);
+                }
+                try {
+                    task.get(REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    //Not done yet: report progress again.
+                }
+            }
+            task.get();
+            monitor.report(componentsResolved.get(), results.size(), "components");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled.set(true);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Resolves the components in [start, end), splitting the range in two
+     * until its components hold few enough matches. Each component's result
+     * goes in its own slot of the results list, so no synchronization is
+     * needed.
+     */
+    private class ResolveTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final Resolver resolver;
+        private final List<Map<Feature, Matches>> results;
+        private final int start;
+        private final int end;
+        private final AtomicInteger componentsResolved;
+        private final AtomicBoolean cancelled;
+
+        ResolveTask(Resolver resolver, List<Map<Feature, Matches>> results, int start, int end,
+                AtomicInteger componentsResolved, AtomicBoolean cancelled) {
+            this.resolver = resolver;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.componentsResolved = componentsResolved;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1 && matchesBefore[end] - matchesBefore[start] > MIN_TASK_MATCHES) {
+                int middle = (start + end) >>> 1;
+                invokeAll(
+                    new ResolveTask(resolver, results, start, middle, componentsResolved, cancelled),
+                    new ResolveTask(resolver, results, middle, end, componentsResolved, cancelled));
+                return;
+            }
+            TaskMonitor workerMonitor = new WorkerMonitor(cancelled);
+            for (int c = start; c < end && !cancelled.get(); c++) {
+                results.set(c, resolve(c, resolver, workerMonitor));
+                componentsResolved.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Disjoint sets of nodes, growing as nodes are met.
+     */
+    private static class UnionFind {
+        private int[] parents = new int[16];
+        private int[] sizes = new int[16];
+        private int nodeCount;
+
+        int find(int node) {
+            grow(node);
+            while (parents[node] != node) {
+                //Path halving.
+                parents[node] = parents[parents[node]];
+                node = parents[node];
+            }
+            return node;
+        }
+
+        void union(int a, int b) {
+            int rootA = find(a);
+            int rootB = find(b);
+            if (rootA == rootB) {
+                return;
+            }
+            if (sizes[rootA] < sizes[rootB]) {
+                int swap = rootA;
+                rootA = rootB;
+                rootB = swap;
+            }
+            parents[rootB] = rootA;
+            sizes[rootA] += sizes[rootB];
+        }
+
+        private void grow(int node) {
+            if (node >= parents.length) {
+                int capacity = Math.max(2 * parents.length, node + 1);
+                parents = Arrays.copyOf(parents, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+            }
+            while (nodeCount <= node) {
+                parents[nodeCount] = nodeCount;
+                sizes[nodeCount] = 1;
+                nodeCount++;
+            }
+        }
+    }
+}
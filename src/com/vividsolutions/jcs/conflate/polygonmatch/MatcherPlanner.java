@@ -0,0 +1,181 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Rewrites a FeatureMatcher tree so that it computes the same scores with
+ * less work.
+ * <P>
+ * Within a ChainMatcher, the matchers that do not read the candidate scores
+ * are filters applied to each candidate independently, so their order does not
+ * change which candidates survive. The planner runs the cheap ones first, so
+ * that the expensive ones only see the survivors. The matcher giving the
+ * scores, i.e. the last one before a matcher reading the scores or the end of
+ * the chain, is never moved. Nested ChainMatchers are flattened.
+ * A NearestCandidatesMatcher keeps candidates depending on the other
+ * candidates, so nothing is moved across it either.
+ * <P>
+ * When the whole matcher only returns candidates within a known distance of
+ * the target (see MatcherUtil#searchDistance) and does not start with a
+ * window or a NearestCandidatesMatcher, which both query the spatial index
+ * themselves, a WindowMatcher of that distance is put in front of it, so that
+ * the spatial index of the candidates is used.
+ * <P>
+ * Matchers not reading the candidate scores (see
+ * MatcherUtil#requiresScoredCandidates) are assumed to keep or discard each
+ * candidate independently of the other candidates.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class MatcherPlanner {
+
+  private MatcherPlanner() {}
+
+  /**
+   * Returns a FeatureMatcher giving the same scores as the given one.
+   * @param matcher the FeatureMatcher to rewrite
+   * @return the rewritten FeatureMatcher, or matcher itself if nothing can be
+   * improved
+   */
+  public static FeatureMatcher plan(FeatureMatcher matcher) {
+    FeatureMatcher planned = reorder(matcher);
+    double searchDistance = MatcherUtil.searchDistance(planned);
+    if (!Double.isInfinite(searchDistance) && !startsWithWindow(planned)
+        && !MatcherUtil.requiresScoredCandidates(planned)) {
+      List<FeatureMatcher> matchers = new ArrayList<>();
+      matchers.add(new WindowMatcher(searchDistance));
+      if (planned instanceof ChainMatcher) {
+        matchers.addAll(((ChainMatcher) planned).getMatchers());
+      } else {
+        matchers.add(planned);
+      }
+      planned = new ChainMatcher(matchers.toArray(new FeatureMatcher[matchers.size()]));
+    }
+    return planned;
+  }
+
+  /**
+   * Returns a rough estimate of the time taken by the matcher to score one
+   * candidate, relative to the other matchers.
+   * @param matcher the FeatureMatcher to estimate
+   * @return a positive cost; 0 for spatial windows
+   */
+  public static double estimatedCost(FeatureMatcher matcher) {
+    if (matcher instanceof WindowMatcher || matcher instanceof WindowFilter) {
+      return 0;
+    } else if (matcher instanceof ChainMatcher) {
+      double cost = 0;
+      for (FeatureMatcher m : ((ChainMatcher) matcher).getMatchers()) {
+        cost += estimatedCost(m);
+      }
+      return cost;
+    } else if (matcher instanceof WeightedMatcher) {
+      double cost = 0;
+      for (FeatureMatcher m : ((WeightedMatcher) matcher).getMatchers()) {
+        cost += estimatedCost(m);
+      }
+      return cost;
+    } else if (matcher instanceof NearestCandidatesMatcher) {
+      return estimatedCost(((NearestCandidatesMatcher) matcher).getMatcher());
+    } else if (matcher instanceof CentroidDistanceMatcher) {
+      return 2;
+    } else if (matcher instanceof CompactnessMatcher) {
+      return 3;
+    } else if (matcher instanceof AngleHistogramMatcher) {
+      return 6;
+    } else if (matcher instanceof HausdorffDistanceMatcher) {
+      return 8;
+    } else if (matcher instanceof AbstractDistanceMatcher) {
+      return 7;
+    } else if (matcher instanceof CentroidAligner) {
+      //The aligned geometries are cached per feature: looking them up costs
+      //little more than the aligned matcher itself.
+      return estimatedCost(((CentroidAligner) matcher).getMatcher()) + 1;
+    } else if (matcher instanceof SymDiffMatcher || matcher instanceof OverlapMatcher) {
+      return 10;
+    }
+    //Attribute comparisons and other unknown matchers.
+    return 5;
+  }
+
+  private static boolean startsWithWindow(FeatureMatcher matcher) {
+    if (matcher instanceof ChainMatcher) {
+      List<FeatureMatcher> matchers = ((ChainMatcher) matcher).getMatchers();
+      return !matchers.isEmpty() && startsWithWindow(matchers.get(0));
+    }
+    return matcher instanceof WindowMatcher || matcher instanceof WindowFilter
+        || matcher instanceof NearestCandidatesMatcher;
+  }
+
+  private static FeatureMatcher reorder(FeatureMatcher matcher) {
+    if (matcher instanceof ChainMatcher) {
+      return reorderChain((ChainMatcher) matcher);
+    } else if (matcher instanceof WeightedMatcher) {
+      WeightedMatcher weighted = (WeightedMatcher) matcher;
+      List<Object> matchersAndWeights = new ArrayList<>();
+      boolean changed = false;
+      for (FeatureMatcher m : weighted.getMatchers()) {
+        FeatureMatcher planned = reorder(m);
+        changed |= planned != m;
+        matchersAndWeights.add(Double.valueOf(weighted.getWeight(m)));
+        matchersAndWeights.add(planned);
+      }
+      return changed ? new WeightedMatcher(matchersAndWeights.toArray()) : matcher;
+    }
+    return matcher;
+  }
+
+  private static FeatureMatcher reorderChain(ChainMatcher chain) {
+    List<FeatureMatcher> flattened = new ArrayList<>();
+    flatten(chain, flattened);
+    if (flattened.isEmpty()) {
+      return chain;
+    }
+    List<FeatureMatcher> planned = new ArrayList<>();
+    int segmentStart = 0;
+    for (int i = 0; i < flattened.size(); i++) {
+      FeatureMatcher matcher = flattened.get(i);
+      if (MatcherUtil.requiresScoredCandidates(matcher)
+          || matcher instanceof NearestCandidatesMatcher) {
+        //Barrier: the matcher before it gives the scores it reads, or the
+        //candidates it chooses from.
+        addSegment(flattened.subList(segmentStart, i), planned);
+        planned.add(matcher);
+        segmentStart = i + 1;
+      }
+    }
+    addSegment(flattened.subList(segmentStart, flattened.size()), planned);
+    if (planned.size() == 1 && !MatcherUtil.requiresScoredCandidates(planned.get(0))) {
+      return planned.get(0);
+    }
+    return new ChainMatcher(planned.toArray(new FeatureMatcher[planned.size()]));
+  }
+
+  private static void flatten(ChainMatcher chain, List<FeatureMatcher> flattened) {
+    for (FeatureMatcher m : chain.getMatchers()) {
+      if (m instanceof ChainMatcher && !((ChainMatcher) m).getMatchers().isEmpty()) {
+        flatten((ChainMatcher) m, flattened);
+      } else {
+        flattened.add(reorder(m));
+      }
+    }
+  }
+
+  /**
+   * Adds a run of matchers not reading scores, cheapest first, except for the
+   * last one which gives the scores and stays last.
+   */
+  private static void addSegment(List<FeatureMatcher> segment, List<FeatureMatcher> planned) {
+    if (segment.isEmpty()) {
+      return;
+    }
+    List<FeatureMatcher> filters = new ArrayList<>(segment.subList(0, segment.size() - 1));
+    //Stable sort: matchers of equal cost keep the user's order.
+    Collections.sort(filters, Comparator.comparingDouble(MatcherPlanner::estimatedCost));
+    planned.addAll(filters);
+    planned.add(segment.get(segment.size() - 1));
+  }
+}
@@ -37,7 +37,7 @@ import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.CoordinateFilter;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jump.geom.CoordUtil;
-import com.vividsolutions.jump.util.CoordinateArrays;
+import com.vividsolutions.jump.util.CoordinateTraversal;
 
 /**
  * Functions useful to FeatureMatchers in general.
@@ -66,6 +66,9 @@ public class MatcherUtil {
         coordinate.y += move.y;
       }
     });
+    //The envelope cached before the move (and copied by Geometry#clone) is
+    //now wrong.
+    g.geometryChanged();
   }
 
   /**
@@ -75,18 +78,131 @@ public class MatcherUtil {
    * weighted by segment length
    */
   public static Coordinate outlineCentreOfMass(Geometry g) {
-    Coordinate weightedSum = new Coordinate();
-    double totalLength = 0;
-    List<Coordinate[]> coordArrays = CoordinateArrays.toCoordinateArrays(g, false);
-    for (Coordinate[] coords : coordArrays) {
-      for (int j = 1; j < coords.length; j++) {
-        double length = coords[j-1].distance(coords[j]);
-        totalLength += length;
-        weightedSum = CoordUtil.add(weightedSum, CoordUtil.multiply(length,
-            CoordUtil.average(coords[j-1], coords[j])));
+    OutlineCentreOfMass sums = new OutlineCentreOfMass();
+    CoordinateTraversal.visitSegments(g, sums);
+    return new Coordinate(sums.weightedSumX / sums.totalLength,
+        sums.weightedSumY / sums.totalLength);
+  }
+
+  /**
+   * Sums of #outlineCentreOfMass, in the same order as the original
+   * Coordinate-based computation so that the results are identical.
+   */
+  private static class OutlineCentreOfMass implements CoordinateTraversal.SegmentVisitor {
+    double weightedSumX;
+    double weightedSumY;
+    double totalLength;
+    @Override
+    public void visit(double x0, double y0, double x1, double y1) {
+      double dx = x0 - x1;
+      double dy = y0 - y1;
+      double length = Math.sqrt(dx * dx + dy * dy);
+      totalLength += length;
+      weightedSumX += length * ((x0 + x1) / 2d);
+      weightedSumY += length * ((y0 + y1) / 2d);
+    }
+  }
+
+  /**
+   * Returns the distance beyond which a candidate can never be returned by
+   * the given matcher: every candidate it returns has an envelope within this
+   * distance of the target envelope. Running the matcher on the candidates
+   * within this distance only gives the same scores as on all of them, even
+   * when a NearestCandidatesMatcher chooses among them.
+   * Method not part of the original JCS code.
+   * @param matcher the matcher to analyze
+   * @return the search distance, or Double.POSITIVE_INFINITY if the matcher
+   * is not known to be bounded
+   */
+  public static double searchDistance(FeatureMatcher matcher) {
+    if (matcher instanceof WindowMatcher) {
+      return Math.max(0, ((WindowMatcher) matcher).getBuffer());
+    } else if (matcher instanceof WindowFilter) {
+      return Math.max(0, ((WindowFilter) matcher).getBuffer());
+    } else if (matcher instanceof AbstractDistanceMatcher) {
+      //Standard, centroid and vertex Hausdorff distances are all greater than
+      //or equal to the distance between the envelopes.
+      double maxDistance = ((AbstractDistanceMatcher) matcher).getMaxDistance();
+      return maxDistance > 0 ? maxDistance : Double.POSITIVE_INFINITY;
+    } else if (matcher instanceof NearestCandidatesMatcher) {
+      return searchDistance(((NearestCandidatesMatcher) matcher).getMatcher());
+    } else if (matcher instanceof ChainMatcher) {
+      //Survivors must pass every matcher of the chain. A NearestCandidatesMatcher
+      //chooses from all the candidates passing the matchers before it, whatever
+      //the matchers after it: these cannot narrow the search.
+      double distance = Double.POSITIVE_INFINITY;
+      for (FeatureMatcher m : ((ChainMatcher) matcher).getMatchers()) {
+        distance = Math.min(distance, searchDistance(m));
+        if (dependsOnCandidateSet(m)) {
+          break;
+        }
+      }
+      return distance;
+    } else if (matcher instanceof WeightedMatcher) {
+      //A candidate passing any of the matchers is returned.
+      double distance = 0;
+      for (FeatureMatcher m : ((WeightedMatcher) matcher).getMatchers()) {
+        distance = Math.max(distance, searchDistance(m));
+      }
+      return distance;
+    }
+    return Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Returns whether the given matcher reads the scores of its candidates, and
+   * so must be given a Matches rather than any FeatureCollection.
+   * Method not part of the original JCS code.
+   * @param matcher the matcher to analyze
+   * @return true if the candidates passed to the matcher must be a Matches
+   */
+  public static boolean requiresScoredCandidates(FeatureMatcher matcher) {
+    if (matcher instanceof ChainMatcher) {
+      //Later matchers of the chain are given the Matches of the previous ones.
+      List<FeatureMatcher> matchers = ((ChainMatcher) matcher).getMatchers();
+      return !matchers.isEmpty() && requiresScoredCandidates(matchers.get(0));
+    } else if (matcher instanceof WeightedMatcher) {
+      for (FeatureMatcher m : ((WeightedMatcher) matcher).getMatchers()) {
+        if (requiresScoredCandidates(m)) {
+          return true;
+        }
+      }
+      return false;
+    }
+    return matcher instanceof ThresholdFilter
+        || matcher instanceof MinScoreMatcher
+        || matcher instanceof TopScoreMatcher
+        || matcher instanceof TopScoreFilter
+        || matcher instanceof IdenticalFeatureFilter
+        || matcher instanceof ScaleScoresMatcher
+        || matcher instanceof ScoreStretcher;
+  }
+
+  /**
+   * Returns whether the score the given matcher gives to a candidate depends
+   * on the other candidates, so that running it on a subset of the candidates
+   * may score a candidate it would have left out.
+   * Method not part of the original JCS code.
+   * @param matcher the matcher to analyze
+   * @return true if the matcher is or contains a NearestCandidatesMatcher
+   */
+  public static boolean dependsOnCandidateSet(FeatureMatcher matcher) {
+    if (matcher instanceof ChainMatcher) {
+      for (FeatureMatcher m : ((ChainMatcher) matcher).getMatchers()) {
+        if (dependsOnCandidateSet(m)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (matcher instanceof WeightedMatcher) {
+      for (FeatureMatcher m : ((WeightedMatcher) matcher).getMatchers()) {
+        if (dependsOnCandidateSet(m)) {
+          return true;
+        }
       }
+      return false;
     }
-    return CoordUtil.divide(weightedSum, totalLength);
+    return matcher instanceof NearestCandidatesMatcher;
   }
 
   /**
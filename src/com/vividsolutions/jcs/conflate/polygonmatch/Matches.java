@@ -32,38 +32,64 @@
 package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.util.Assert;
 import com.vividsolutions.jump.feature.Feature;
 import com.vividsolutions.jump.feature.FeatureCollection;
-import com.vividsolutions.jump.feature.FeatureDataset;
 import com.vividsolutions.jump.feature.FeatureSchema;
 
 /**
  * A FeatureCollection that stores the "score" of each Feature.  The score is
  * a number between 0.0 and 1.0 that indicates the confidence of a match.
+ * <P>
+ * The features and scores are kept in parallel arrays, allocated on the first
+ * add and grown on demand; the envelope is only computed when asked for.
  */
 public class Matches implements FeatureCollection, Cloneable {
 
+    private static final Feature[] NO_FEATURES = new Feature[0];
+    private static final double[] NO_SCORES = new double[0];
+
     /**
      * Creates a Matches object.
      * @param schema metadata applicable to the features that will be stored in
      * this Matches object
      */
     public Matches(FeatureSchema schema) {
-        dataset = new FeatureDataset(schema);
+        this(schema, false);
+    }
+
+    private Matches(FeatureSchema schema, boolean immutable) {
+        this.schema = schema;
+        this.immutable = immutable;
+    }
+
+    /**
+     * Returns a new empty Matches to which no match can be added, so that it
+     * can be shared by all the targets without match.
+     * Method not part of the original JCS code.
+     * @param schema metadata applicable to the features of the Matches
+     * @return an empty, immutable Matches
+     */
+    public static Matches empty(FeatureSchema schema) {
+        return new Matches(schema, true);
     }
 
     @Override
     protected Matches clone() {
-        Matches clone = new Matches(dataset.getFeatureSchema());
-        for (int i = 0; i < size(); i++) {
-            clone.add(getFeature(i), getScore(i));
-        }
+        Matches clone = new Matches(schema);
+        clone.features = Arrays.copyOf(features, size);
+        clone.scores = Arrays.copyOf(scores, size);
+        clone.size = size;
+        clone.topMatch = topMatch;
+        clone.topScore = topScore;
         return clone;
     }
 
@@ -75,13 +101,22 @@ public class Matches implements FeatureCollection, Cloneable {
      */
     public Matches(FeatureSchema schema, List<Feature> features) {
         this(schema);
-        for (Feature match : features) {
-            add(match, 1);
+        if (!features.isEmpty()) {
+            this.features = features.toArray(new Feature[features.size()]);
+            this.scores = new double[this.features.length];
+            Arrays.fill(this.scores, 1);
+            this.size = this.features.length;
+            this.topMatch = this.features[0];
+            this.topScore = 1;
         }
     }
 
-    private FeatureDataset dataset;
-    private List<Double> scores = new ArrayList<>();
+    private final FeatureSchema schema;
+    private final boolean immutable;
+    private Feature[] features = NO_FEATURES;
+    private double[] scores = NO_SCORES;
+    private int size;
+    private Envelope envelope;
 
     /**
      * This method is not supported, because added features need to be associated
@@ -167,8 +202,20 @@ public class Matches implements FeatureCollection, Cloneable {
         if (score == 0) {
             return;
         }
-        scores.add(Double.valueOf(score));
-        dataset.add(feature);
+        if (immutable) {
+            throw new UnsupportedOperationException("Empty Matches cannot be modified");
+        }
+        if (size == features.length) {
+            int capacity = Math.max(4, 2 * size);
+            features = Arrays.copyOf(features, capacity);
+            scores = Arrays.copyOf(scores, capacity);
+        }
+        features[size] = feature;
+        scores[size] = score;
+        size++;
+        if (envelope != null) {
+            envelope.expandToInclude(feature.getGeometry().getEnvelopeInternal());
+        }
         if (score > topScore) {
             topScore = score;
             topMatch = feature;
@@ -195,45 +242,84 @@ public class Matches implements FeatureCollection, Cloneable {
      * @return the confidence of the ith match
      */
     public double getScore(int i) {
-        return scores.get(i).doubleValue();
+        checkIndex(i);
+        return scores[i];
     }
 
     @Override
 	public FeatureSchema getFeatureSchema() {
-        return dataset.getFeatureSchema();
+        return schema;
     }
 
     @Override
 	public Envelope getEnvelope() {
-        return dataset.getEnvelope();
+        if (envelope == null) {
+            Envelope newEnvelope = new Envelope();
+            for (int i = 0; i < size; i++) {
+                newEnvelope.expandToInclude(features[i].getGeometry().getEnvelopeInternal());
+            }
+            envelope = newEnvelope;
+        }
+        return envelope;
     }
 
     @Override
 	public int size() {
-        return dataset.size();
+        return size;
     }
 
     @Override
 	public boolean isEmpty() {
-        return dataset.isEmpty();
+        return size == 0;
     }
 
     public Feature getFeature(int index) {
-        return dataset.getFeature(index);
+        checkIndex(index);
+        return features[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
     }
 
     @Override
 	public List<Feature> getFeatures() {
-        return dataset.getFeatures();
+        return Collections.unmodifiableList(Arrays.asList(features).subList(0, size));
     }
 
     @Override
 	public Iterator<Feature> iterator() {
-        return dataset.iterator();
+        return new Iterator<Feature>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public Feature next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return features[next++];
+            }
+        };
     }
 
     @Override
 	public List<Feature> query(Envelope envelope) {
-        return dataset.query(envelope);
+        List<Feature> queryResult = new ArrayList<>();
+        if (size == 0 || !envelope.intersects(getEnvelope())) {
+            return queryResult;
+        }
+        for (int i = 0; i < size; i++) {
+            if (features[i].getGeometry().getEnvelopeInternal().intersects(envelope)) {
+                queryResult.add(features[i]);
+            }
+        }
+        return queryResult;
     }
 }
@@ -63,6 +63,12 @@ public class MinScoreMatcher implements FeatureMatcher {
    */
   public void setMinScore(double minScore) { this.minScore = minScore; }
 
+  /**
+   * Method not part of the original JCS code.
+   * @return the score below which shapes are filtered out
+   */
+  public double getMinScore() { return minScore; }
+
   private double minScore;
 
   /**
@@ -0,0 +1,140 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.util.Assert;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.feature.IndexedFeatureCollection;
+
+/**
+ * Keeps the k candidates nearest to the target according to a distance
+ * matcher, scored by that matcher. Candidates further than the matcher's
+ * maximum distance are discarded, and candidates at the same distance as the
+ * k-th one are kept as well.
+ * <P>
+ * When the candidates are an IndexedFeatureCollection, they are visited in
+ * order of envelope distance (branch and bound): the search stops as soon as
+ * the envelope distance of the next candidate is larger than the k-th best
+ * distance found so far, so most candidates are never compared to the target.
+ * This relies on the distance between two geometries never being smaller than
+ * the distance between their envelopes, which holds for the standard,
+ * centroid and Hausdorff distances. Other candidate collections are scanned
+ * linearly.
+ * <P>
+ * Unlike a Window in front of the distance matcher, this matcher needs the
+ * whole candidate collection, so it should come first in a ChainMatcher.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class NearestCandidatesMatcher implements FeatureMatcher {
+
+  private final int k;
+  private final AbstractDistanceMatcher matcher;
+
+  /**
+   * @param k the number of nearest candidates to keep
+   * @param matcher the matcher giving the distances and the scores
+   */
+  public NearestCandidatesMatcher(int k, AbstractDistanceMatcher matcher) {
+    Assert.isTrue(k > 0, "k = " + k);
+    this.k = k;
+    this.matcher = matcher;
+  }
+
+  /**
+   * @return the number of nearest candidates kept
+   */
+  public int getK() {
+    return k;
+  }
+
+  /**
+   * @return the matcher giving the distances and the scores
+   */
+  public AbstractDistanceMatcher getMatcher() {
+    return matcher;
+  }
+
+  @Override
+  public Matches match(Feature target, FeatureCollection candidates) {
+    Geometry targetGeometry = target.getGeometry();
+    Envelope envelope = targetGeometry.getEnvelopeInternal();
+    double maxDistance = matcher.getMaxDistance();
+    boolean nearestFirst = candidates instanceof IndexedFeatureCollection;
+    Iterator<Feature> i = nearestFirst
+        ? ((IndexedFeatureCollection) candidates).nearestFirst(envelope)
+        : candidates.iterator();
+    List<Feature> features = new ArrayList<>();
+    List<Double> distances = new ArrayList<>();
+    //The k smallest distances found so far, largest at the head.
+    PriorityQueue<Double> nearest = new PriorityQueue<>(k, Collections.reverseOrder());
+    while (i.hasNext()) {
+      Feature candidate = i.next();
+      Geometry candidateGeometry = candidate.getGeometry();
+      double lowerBound = envelope.distance(candidateGeometry.getEnvelopeInternal());
+      if ((maxDistance > 0 && lowerBound >= maxDistance)
+          || (nearest.size() == k && lowerBound > nearest.peek())) {
+        if (nearestFirst) {
+          //The remaining candidates are at least as far.
+          break;
+        }
+        continue;
+      }
+      //Beyond the maximum distance the score is 0, beyond the k-th distance
+      //the candidate is not kept: the exact distance is not needed.
+      double bound = maxDistance > 0 ? maxDistance : Double.POSITIVE_INFINITY;
+      if (nearest.size() == k) {
+        bound = Math.min(bound, Math.nextUp(nearest.peek()));
+      }
+      double distance = matcher.distance(target, candidate, bound);
+      if (distance >= bound) {
+        continue;
+      }
+      if (nearest.size() < k) {
+        nearest.add(distance);
+      } else if (distance < nearest.peek()) {
+        nearest.poll();
+        nearest.add(distance);
+      } else if (distance > nearest.peek()) {
+        continue;
+      }
+      features.add(candidate);
+      distances.add(distance);
+    }
+    return toMatches(target, features, distances, nearest.isEmpty() ? 0 : nearest.peek(),
+        candidates);
+  }
+
+  /**
+   * Returns the kept candidates not further than the k-th distance, nearest
+   * first, scored by the matcher.
+   */
+  private Matches toMatches(Feature target, List<Feature> features, List<Double> distances,
+      double kthDistance, FeatureCollection candidates) {
+    List<Integer> order = new ArrayList<>();
+    for (int j = 0; j < features.size(); j++) {
+      if (distances.get(j) <= kthDistance) {
+        order.add(j);
+      }
+    }
+    //Stable sort: candidates at the same distance keep the visiting order.
+    Collections.sort(order, Comparator.comparingDouble(distances::get));
+    Matches matches = new Matches(candidates.getFeatureSchema());
+    for (int j : order) {
+      Feature candidate = features.get(j);
+      double score = matcher.score(distances.get(j), target.getGeometry(), candidate.getGeometry());
+      if (score > 0) {
+        matches.add(candidate, score);
+      }
+    }
+    return matches;
+  }
+}
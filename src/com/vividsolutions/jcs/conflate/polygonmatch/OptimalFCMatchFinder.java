@@ -0,0 +1,314 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.task.TaskMonitor;
+
+/**
+ * Enforces a one-to-one relationship between target features and
+ * matched candidate features, in the returned result set, keeping the
+ * matches with the greatest total score. Unlike DisambiguatingFCMatchFinder,
+ * a target may give up its best candidate when another target would lose more
+ * without it.
+ * <P>
+ * The matches (which all have a positive score) are read from a
+ * ScoreMatrix, as a graph of targets and candidates. Each target may also
+ * stay unmatched, at no cost. The assignment is found by the shortest augmenting
+ * path method (as in the Hungarian algorithm), with Dijkstra searches over
+ * that graph:
+ * <UL>
+ * <LI>each target is first given its best candidate when no other target has
+ * taken it, which settles most targets without any search;</LI>
+ * <LI>each remaining target then runs a search that stops as soon as it finds
+ * a free candidate or finds that staying unmatched is cheaper, so it only
+ * explores the targets and candidates competing with it.</LI>
+ * </UL>
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class OptimalFCMatchFinder implements FCMatchFinder {
+
+    private final FCMatchFinder matchFinder;
+
+    public OptimalFCMatchFinder(FCMatchFinder matchFinder) {
+        this.matchFinder = matchFinder;
+    }
+
+    /**
+     * @return the FCMatchFinder whose matches are filtered
+     */
+    public FCMatchFinder getMatchFinder() {
+        return matchFinder;
+    }
+
+    @Override
+    public Map<Feature, Matches> match(
+        FeatureCollection targetFC,
+        FeatureCollection candidateFC,
+        TaskMonitor monitor) {
+        Map<Feature, Matches> originalTargetToMatchesMap = matchFinder.match(targetFC, candidateFC, monitor);
+        monitor.allowCancellationRequests();
+        monitor.report("Finding optimal matches");
+        ScoreMatrix scores = ScoreMatrix.of(originalTargetToMatchesMap);
+        Assignment assignment = new Assignment(scores);
+        assignment.solve(monitor);
+        //Re-add filtered-out targets, but with zero-score matches [Jon Aquino]
+        Map<Feature, Matches> targetToMatchesMap =
+            AreaFilterFCMatchFinder.blankTargetToMatchesMap(
+                targetFC.getFeatures(),
+                candidateFC.getFeatureSchema());
+        targetToMatchesMap.putAll(scores.toMap(assignment.getRowEntries(), candidateFC.getFeatureSchema()));
+        return targetToMatchesMap;
+    }
+
+    /**
+     * Minimum cost assignment of each row (target) to a distinct column
+     * (candidate) or to its own dummy column, which stands for the row being
+     * unmatched at cost 0. The cost of an entry of the matrix is minus its
+     * score. The dummy column of row r is column columnCount + r, and is not
+     * stored in the matrix.
+     * <P>
+     * Dual feasibility is kept throughout: with the potential of each column,
+     * and the potential of each assigned row making its assignment cost tight,
+     * every reduced cost is non-negative. The potential of a free column is
+     * always 0, so the assignment found is optimal without requiring every
+     * candidate to be used.
+     */
+    static class Assignment {
+
+        private final ScoreMatrix scores;
+        private final int rowCount;
+        private final int columnCount;
+
+        /** The column of each row, or -1 while the row is not processed */
+        private final int[] rowColumn;
+        /** The entry of the assignment of each row, -1 for a dummy column */
+        private final int[] rowEntry;
+        /** The cost of the assignment of each row */
+        private final double[] rowCost;
+        /** The row of each column, including dummy ones, or -1 if free */
+        private final int[] columnRow;
+        private final double[] potentials;
+
+        //Search state, reset after each search through the visited columns.
+        private final double[] distances;
+        private final int[] predecessors;
+        private final int[] predecessorEntries;
+        private final boolean[] scanned;
+        private int[] visited = new int[16];
+        private int visitedCount;
+        private final ColumnHeap heap = new ColumnHeap();
+
+        /**
+         * @param scores the scores of the matches, all positive
+         */
+        Assignment(ScoreMatrix scores) {
+            this.scores = scores;
+            rowCount = scores.getTargetCount();
+            columnCount = scores.getCandidateCount();
+            rowColumn = new int[rowCount];
+            Arrays.fill(rowColumn, -1);
+            rowEntry = new int[rowCount];
+            rowCost = new double[rowCount];
+            columnRow = new int[columnCount + rowCount];
+            Arrays.fill(columnRow, -1);
+            potentials = new double[columnCount + rowCount];
+            distances = new double[columnCount + rowCount];
+            Arrays.fill(distances, Double.POSITIVE_INFINITY);
+            predecessors = new int[columnCount + rowCount];
+            predecessorEntries = new int[columnCount + rowCount];
+            scanned = new boolean[columnCount + rowCount];
+        }
+
+        /**
+         * @return the entry assigned to each row, -1 for an unmatched row
+         */
+        int[] getRowEntries() {
+            return rowEntry;
+        }
+
+        /**
+         * Assigns every row. If cancellation is requested, the rows not yet
+         * processed are left unmatched: the assignment is then still
+         * one-to-one, but not optimal.
+         */
+        void solve(TaskMonitor monitor) {
+            List<Integer> remaining = new ArrayList<>();
+            //With all potentials at 0, a row's top entry is tight.
+            int[] topEntries = scores.topEntries();
+            for (int row = 0; row < rowCount; row++) {
+                int top = topEntries[row];
+                if (top < 0) {
+                    assign(row, columnCount + row, -1);
+                } else if (columnRow[scores.getColumn(top)] < 0) {
+                    assign(row, scores.getColumn(top), top);
+                } else {
+                    remaining.add(Integer.valueOf(row));
+                }
+            }
+            for (int i = 0; i < remaining.size() && !monitor.isCancelRequested(); i++) {
+                monitor.report(i + 1, remaining.size(), "contested targets");
+                augment(remaining.get(i).intValue());
+            }
+            for (int row = 0; row < rowCount; row++) {
+                if (rowColumn[row] < 0) {
+                    assign(row, columnCount + row, -1);
+                }
+            }
+        }
+
+        private void assign(int row, int column, int entry) {
+            rowColumn[row] = column;
+            rowEntry[row] = entry;
+            rowCost[row] = entry < 0 ? 0 : -scores.getScore(entry);
+            columnRow[column] = row;
+        }
+
+        /**
+         * Runs a Dijkstra search from the row, over reduced costs, to its
+         * nearest free column, then moves each row along the path to the next
+         * column and updates the potentials of the columns scanned.
+         */
+        private void augment(int source) {
+            //Distances are offset by the (unknown) potential of the source row.
+            relax(source, 0);
+            int target = -1;
+            while (!heap.isEmpty()) {
+                int column = heap.pop();
+                if (scanned[column]) {
+                    continue;
+                }
+                scanned[column] = true;
+                int row = columnRow[column];
+                if (row < 0) {
+                    target = column;
+                    break;
+                }
+                relax(row, distances[column] - (rowCost[row] - potentials[column]));
+            }
+            //The dummy column of the source is free, so a path is always found.
+            double shortest = distances[target];
+            for (int i = 0; i < visitedCount; i++) {
+                int column = visited[i];
+                if (scanned[column] && column != target) {
+                    potentials[column] += distances[column] - shortest;
+                }
+            }
+            int column = target;
+            while (true) {
+                int row = predecessors[column];
+                int previous = rowColumn[row];
+                assign(row, column, predecessorEntries[column]);
+                if (row == source) {
+                    break;
+                }
+                column = previous;
+            }
+            for (int i = 0; i < visitedCount; i++) {
+                distances[visited[i]] = Double.POSITIVE_INFINITY;
+                scanned[visited[i]] = false;
+            }
+            visitedCount = 0;
+            heap.clear();
+        }
+
+        /**
+         * Offers the columns adjacent to the row, including its dummy column,
+         * the row being reached at the given distance. The distance of a
+         * row is that of its column minus the row potential.
+         */
+        private void relax(int row, double rowDistance) {
+            for (int e = scores.getRowStart(row); e < scores.getRowEnd(row); e++) {
+                int column = scores.getColumn(e);
+                offer(column, rowDistance - scores.getScore(e) - potentials[column], row, e);
+            }
+            int dummy = columnCount + row;
+            offer(dummy, rowDistance - potentials[dummy], row, -1);
+        }
+
+        private void offer(int column, double distance, int row, int entry) {
+            if (scanned[column]) {
+                return;
+            }
+            if (distances[column] == Double.POSITIVE_INFINITY) {
+                if (visitedCount == visited.length) {
+                    visited = Arrays.copyOf(visited, 2 * visited.length);
+                }
+                visited[visitedCount++] = column;
+            } else if (distance >= distances[column]) {
+                return;
+            }
+            distances[column] = distance;
+            predecessors[column] = row;
+            predecessorEntries[column] = entry;
+            heap.push(column, distance);
+        }
+    }
+
+    /**
+     * Binary heap of columns by distance, with stale entries skipped by the
+     * caller rather than decreased in place.
+     */
+    private static class ColumnHeap {
+        private double[] keys = new double[16];
+        private int[] columns = new int[16];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            size = 0;
+        }
+
+        void push(int column, double key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, 2 * size);
+                columns = Arrays.copyOf(columns, 2 * size);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                columns[i] = columns[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            columns[i] = column;
+        }
+
+        int pop() {
+            int top = columns[0];
+            double key = keys[--size];
+            int column = columns[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (keys[child] >= key) {
+                    break;
+                }
+                keys[i] = keys[child];
+                columns[i] = columns[child];
+                i = child;
+            }
+            keys[i] = key;
+            columns[i] = column;
+            return top;
+        }
+    }
+}
@@ -1,14 +1,51 @@
 package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
 
 public class OverlapMatcher extends IndependentCandidateMatcher {
 
+    /**
+     * Gets the intersection areas from IntersectionAreas, shared with the
+     * other matchers evaluating the same target.
+     * Method not part of the original JCS code.
+     */
+    @Override
+    public Matches match(Feature target, FeatureCollection candidates) {
+        IntersectionAreas intersectionAreas = IntersectionAreas.forTarget(target);
+        Matches matches = new Matches(candidates.getFeatureSchema());
+        for (Feature candidate : candidates) {
+            double score = score(intersectionAreas, candidate);
+            if (score > 0) { matches.add(candidate, score); }
+        }
+        return matches;
+    }
+
     @Override
     public double match(Geometry target, Geometry candidate) {
         //Impose the min to curb roundoff error in exact matches (a situation which
         //arose during testing (identical datasets)) [Jon Aquino]
-        return Math.min(1, (2 * target.intersection(candidate).getArea())
+        return Math.min(1, (2 * IntersectionAreas.compute(target, candidate))
             / (target.getArea() + candidate.getArea()));
     }
+
+    /**
+     * Same as #match(Geometry, Geometry), with the cached areas.
+     * Method not part of the original JCS code.
+     */
+    @Override
+    public double match(Feature target, Feature candidate) {
+        return score(IntersectionAreas.forTarget(target), candidate);
+    }
+
+    private static double score(IntersectionAreas intersectionAreas, Feature candidate) {
+        double intersectionArea = intersectionAreas.get(candidate);
+        if (intersectionArea == 0) {
+            return 0;
+        }
+        return Math.min(1, (2 * intersectionArea)
+            / (intersectionAreas.getTargetDescriptors().getArea()
+                + GeometryDescriptors.of(candidate).getArea()));
+    }
 }
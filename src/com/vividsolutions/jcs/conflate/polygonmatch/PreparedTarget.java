@@ -0,0 +1,91 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+import com.vividsolutions.jts.operation.distance.IndexedFacetDistance;
+
+/**
+ * A target geometry prepared for comparison with many candidates: its
+ * segments are indexed once, so that disjointness, containment and distance
+ * to each candidate are answered without a full overlay. Build one per
+ * #match(Feature, FeatureCollection) call, not per candidate.
+ * <P>
+ * Not thread-safe: the indexes are built on first use.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class PreparedTarget {
+
+  /**
+   * Total number of vertices of target and candidate below which computing
+   * their distance directly is faster than going through the indexes.
+   */
+  private static final int MIN_INDEXED_DISTANCE_POINTS = 24;
+
+  private final Geometry target;
+  private final PreparedGeometry prepared;
+  private IndexedFacetDistance facetDistance;
+
+  /**
+   * @param target the target geometry, which must not be modified while in use
+   */
+  public PreparedTarget(Geometry target) {
+    this.target = target;
+    this.prepared = PreparedGeometryFactory.prepare(target);
+  }
+
+  /**
+   * @return the target geometry
+   */
+  public Geometry getGeometry() {
+    return target;
+  }
+
+  /**
+   * @param candidate the geometry to compare with the target
+   * @return true if the target and the candidate have at least one point in
+   * common
+   */
+  public boolean intersects(Geometry candidate) {
+    return prepared.intersects(candidate);
+  }
+
+  /**
+   * @param candidate the geometry to compare with the target
+   * @return true if every point of the candidate is a point of the target
+   */
+  public boolean covers(Geometry candidate) {
+    return prepared.covers(candidate);
+  }
+
+  /**
+   * Cheap envelope test first, as the target is not indexed for this
+   * predicate.
+   * @param candidate the geometry to compare with the target
+   * @return true if every point of the target is a point of the candidate
+   */
+  public boolean isCoveredBy(Geometry candidate) {
+    return candidate.getEnvelopeInternal().covers(target.getEnvelopeInternal())
+        && candidate.covers(target);
+  }
+
+  /**
+   * Same as Geometry#distance: 0 if the geometries intersect, the distance
+   * between their nearest segments or points otherwise.
+   * @param candidate the geometry to compare with the target
+   * @return the minimum distance between the target and the candidate
+   */
+  public double distance(Geometry candidate) {
+    if (target.getNumPoints() + candidate.getNumPoints() < MIN_INDEXED_DISTANCE_POINTS) {
+      return target.distance(candidate);
+    }
+    if (target.isEmpty() || candidate.isEmpty() || intersects(candidate)) {
+      return 0;
+    }
+    if (facetDistance == null) {
+      facetDistance = new IndexedFacetDistance(target);
+    }
+    return facetDistance.getDistance(candidate);
+  }
+}
@@ -0,0 +1,271 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureSchema;
+
+/**
+ * The scores of a target-to-Matches map, as a sparse matrix with one row per
+ * target and one column per candidate. Rows are stored in compressed sparse
+ * row form: the entries of row r are the indices rowStart[r] to
+ * rowStart[r + 1] - 1 of the column and score arrays, in the order of the
+ * target's Matches. The transposed (compressed sparse column) form is built
+ * on first use, in O(number of entries), the entries of each column being in
+ * row order.
+ * <P>
+ * Targets and candidates are given dense indices; equal candidates (see
+ * Object#equals) share the same column. FCMatchFinder decorators can work on
+ * the arrays, without a HashMap or a Matches per feature, and convert back
+ * with #toMap.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class ScoreMatrix {
+
+    private final Feature[] targets;
+    private final Feature[] candidates;
+    private final int[] rowStart;
+    private final int[] columns;
+    private final double[] scores;
+
+    private int[] columnStart;
+    private int[] rows;
+    private double[] columnScores;
+
+    /**
+     * @param targets the target of each row
+     * @param candidates the candidate of each column
+     * @param rowStart the index of the first entry of each row, followed by
+     * the number of entries
+     * @param columns the column of each entry
+     * @param scores the score of each entry
+     */
+    public ScoreMatrix(Feature[] targets, Feature[] candidates, int[] rowStart, int[] columns, double[] scores) {
+        this.targets = targets;
+        this.candidates = candidates;
+        this.rowStart = rowStart;
+        this.columns = columns;
+        this.scores = scores;
+    }
+
+    /**
+     * Builds the matrix of a map; the rows are in the iteration order of the
+     * map, and the columns in the order candidates are first met.
+     * @param targetToMatchesMap the matches of each target
+     * @return the scores of the map
+     */
+    public static ScoreMatrix of(Map<Feature, Matches> targetToMatchesMap) {
+        int entryCount = 0;
+        for (Matches matches : targetToMatchesMap.values()) {
+            entryCount += matches.size();
+        }
+        Feature[] targets = new Feature[targetToMatchesMap.size()];
+        int[] rowStart = new int[targets.length + 1];
+        int[] columns = new int[entryCount];
+        double[] scores = new double[entryCount];
+        Map<Feature, Integer> candidateIndices = new HashMap<>();
+        Feature[] candidates = new Feature[16];
+        int row = 0;
+        int e = 0;
+        for (Map.Entry<Feature, Matches> entry : targetToMatchesMap.entrySet()) {
+            targets[row] = entry.getKey();
+            Matches matches = entry.getValue();
+            for (int j = 0; j < matches.size(); j++) {
+                Feature candidate = matches.getFeature(j);
+                Integer column = candidateIndices.get(candidate);
+                if (column == null) {
+                    column = Integer.valueOf(candidateIndices.size());
+                    candidateIndices.put(candidate, column);
+                    if (column.intValue() == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, 2 * candidates.length);
+                    }
+                    candidates[column.intValue()] = candidate;
+                }
+                columns[e] = column.intValue();
+                scores[e] = matches.getScore(j);
+                e++;
+            }
+            row++;
+            rowStart[row] = e;
+        }
+        return new ScoreMatrix(targets, Arrays.copyOf(candidates, candidateIndices.size()),
+            rowStart, columns, scores);
+    }
+
+    /**
+     * Converts the matrix back to a map, rows without entries included.
+     * @param schema the schema of the Matches created
+     * @return the matches of each target, in row order
+     */
+    public Map<Feature, Matches> toMap(FeatureSchema schema) {
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        for (int row = 0; row < targets.length; row++) {
+            Matches matches = new Matches(schema);
+            for (int e = rowStart[row]; e < rowStart[row + 1]; e++) {
+                matches.add(candidates[columns[e]], scores[e]);
+            }
+            map.put(targets[row], matches);
+        }
+        return map;
+    }
+
+    /**
+     * Converts one entry per row to a map.
+     * @param rowEntries the entry kept for each row, -1 to leave the row out
+     * @param schema the schema of the Matches created
+     * @return the single match of each row kept
+     */
+    public Map<Feature, Matches> toMap(int[] rowEntries, FeatureSchema schema) {
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        for (int row = 0; row < targets.length; row++) {
+            int e = rowEntries[row];
+            if (e < 0) {
+                continue;
+            }
+            Matches matches = new Matches(schema);
+            matches.add(candidates[columns[e]], scores[e]);
+            map.put(targets[row], matches);
+        }
+        return map;
+    }
+
+    /**
+     * @return the matrix with the candidates as rows and the targets as
+     * columns
+     */
+    public ScoreMatrix transpose() {
+        buildColumns();
+        return new ScoreMatrix(candidates, targets, columnStart, rows, columnScores);
+    }
+
+    /**
+     * Returns, for each row, its top entry: the one with the highest score,
+     * the first one in case of a tie (as Matches#getTopMatch).
+     * @return the index of the top entry of each row, -1 for an empty row
+     */
+    public int[] topEntries() {
+        int[] top = new int[targets.length];
+        for (int row = 0; row < targets.length; row++) {
+            top[row] = -1;
+            for (int e = rowStart[row]; e < rowStart[row + 1]; e++) {
+                if (top[row] < 0 || scores[e] > scores[top[row]]) {
+                    top[row] = e;
+                }
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns, for each column, its top row: the one with the highest score,
+     * the first one in case of a tie.
+     * @return the top row of each column, -1 for an empty column
+     */
+    public int[] topRows() {
+        buildColumns();
+        int[] top = new int[candidates.length];
+        for (int column = 0; column < candidates.length; column++) {
+            int best = -1;
+            for (int k = columnStart[column]; k < columnStart[column + 1]; k++) {
+                if (best < 0 || columnScores[k] > columnScores[best]) {
+                    best = k;
+                }
+            }
+            top[column] = best < 0 ? -1 : rows[best];
+        }
+        return top;
+    }
+
+    /**
+     * Returns the matches that are the top match of both their target and
+     * their candidate.
+     * @return the index of the mutual top entry of each row, -1 if the top
+     * candidate of the row prefers another target or the row is empty
+     */
+    public int[] mutualTopEntries() {
+        int[] top = topEntries();
+        int[] topRows = topRows();
+        for (int row = 0; row < targets.length; row++) {
+            if (top[row] >= 0 && topRows[columns[top[row]]] != row) {
+                top[row] = -1;
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Builds the compressed sparse column form by counting sort.
+     */
+    private void buildColumns() {
+        if (columnStart != null) {
+            return;
+        }
+        int[] starts = new int[candidates.length + 1];
+        for (int e = 0; e < columns.length; e++) {
+            starts[columns[e] + 1]++;
+        }
+        for (int column = 0; column < candidates.length; column++) {
+            starts[column + 1] += starts[column];
+        }
+        int[] next = Arrays.copyOf(starts, candidates.length);
+        rows = new int[columns.length];
+        columnScores = new double[columns.length];
+        for (int row = 0; row < targets.length; row++) {
+            for (int e = rowStart[row]; e < rowStart[row + 1]; e++) {
+                int k = next[columns[e]]++;
+                rows[k] = row;
+                columnScores[k] = scores[e];
+            }
+        }
+        columnStart = starts;
+    }
+
+    public int getTargetCount() {
+        return targets.length;
+    }
+
+    public int getCandidateCount() {
+        return candidates.length;
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int getEntryCount() {
+        return columns.length;
+    }
+
+    public Feature getTarget(int row) {
+        return targets[row];
+    }
+
+    public Feature getCandidate(int column) {
+        return candidates[column];
+    }
+
+    /**
+     * @return the index of the first entry of the row
+     */
+    public int getRowStart(int row) {
+        return rowStart[row];
+    }
+
+    /**
+     * @return the index following the last entry of the row
+     */
+    public int getRowEnd(int row) {
+        return rowStart[row + 1];
+    }
+
+    public int getColumn(int entry) {
+        return columns[entry];
+    }
+
+    public double getScore(int entry) {
+        return scores[entry];
+    }
+}
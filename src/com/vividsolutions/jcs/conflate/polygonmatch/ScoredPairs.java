@@ -0,0 +1,327 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.task.TaskMonitor;
+
+/**
+ * The (target, candidate, score) triples of a target-to-Matches map, in the
+ * order of DisambiguationMatch: highest scores first, then by target, then by
+ * candidate. NaN scores come last.
+ * <P>
+ * Each triple is packed into one long holding the rank of its score, the
+ * rank of its target and the rank of its candidate, so that sorting is a
+ * primitive (parallel) sort. When the ranks do not fit in 63 bits, the
+ * triples are sorted by index with a comparator of the three ranks instead.
+ * Targets and candidates are also given dense indices, equal features (see
+ * Object#equals) sharing the same index, so that the features already taken
+ * can be kept in BitSets.
+ * <P>
+ * Features comparing equal (see Feature#compareTo) are taken to be the same
+ * feature, as they are for AbstractBasicFeature, which compares creation
+ * serials.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+class ScoredPairs {
+
+  private final double[] scoreByRank;
+  private final Feature[] targetByRank;
+  private final Feature[] candidateByRank;
+  private final int[] targetIndexByRank;
+  private final int[] candidateIndexByRank;
+  private final int targetCount;
+  private final int candidateCount;
+  private final int size;
+  /** The packed triples, sorted; null if the ranks do not fit in a long. */
+  private final long[] keys;
+  private final int targetShift;
+  private final int scoreShift;
+  private final long targetMask;
+  private final long candidateMask;
+  /** The ranks of the sorted triples, when they are not packed. */
+  private final int[] scoreRanks;
+  private final int[] targetRanks;
+  private final int[] candidateRanks;
+
+  private ScoredPairs(Map<Feature, Matches> targetToMatchesMap, boolean packingAllowed) {
+    int pairCount = 0;
+    for (Matches matches : targetToMatchesMap.values()) {
+      pairCount += matches.size();
+    }
+    double[] scores = new double[pairCount];
+    Ranking targets = new Ranking();
+    Ranking candidates = new Ranking();
+    int[] targetIds = new int[pairCount];
+    int[] candidateIds = new int[pairCount];
+    int p = 0;
+    for (Map.Entry<Feature, Matches> entry : targetToMatchesMap.entrySet()) {
+      int targetId = targets.add(entry.getKey());
+      Matches matches = entry.getValue();
+      for (int j = 0; j < matches.size(); j++) {
+        //+ 0.0 turns -0.0 into 0.0, which compare equal in DisambiguationMatch.
+        scores[p] = matches.getScore(j) + 0.0;
+        targetIds[p] = targetId;
+        candidateIds[p] = candidates.add(matches.getFeature(j));
+        p++;
+      }
+    }
+    int[] targetRankById = targets.rank();
+    int[] candidateRankById = candidates.rank();
+    targetByRank = targets.byRank;
+    candidateByRank = candidates.byRank;
+    targetIndexByRank = targets.indexByRank;
+    candidateIndexByRank = candidates.indexByRank;
+    targetCount = targets.indexCount;
+    candidateCount = candidates.indexCount;
+
+    //Distinct scores, highest first, NaN last.
+    double[] sorted = scores.clone();
+    Arrays.parallelSort(sorted);
+    int distinct = 0;
+    for (int i = 0; i < sorted.length; i++) {
+      if (i == 0 || Double.compare(sorted[i], sorted[i - 1]) != 0) {
+        sorted[distinct++] = sorted[i];
+      }
+    }
+    scoreByRank = new double[distinct];
+    for (int i = 0; i < distinct; i++) {
+      scoreByRank[i] = sorted[distinct - 1 - i];
+    }
+    if (distinct > 0 && Double.isNaN(scoreByRank[0])) {
+      System.arraycopy(scoreByRank, 1, scoreByRank, 0, distinct - 1);
+      scoreByRank[distinct - 1] = Double.NaN;
+    }
+
+    size = pairCount;
+    int candidateBits = bits(candidateByRank.length);
+    int targetBits = bits(targetByRank.length);
+    targetShift = candidateBits;
+    scoreShift = candidateBits + targetBits;
+    candidateMask = (1L << candidateBits) - 1;
+    targetMask = (1L << targetBits) - 1;
+    if (packingAllowed && isPackable(candidateByRank.length, targetByRank.length, distinct)) {
+      keys = new long[pairCount];
+      for (int i = 0; i < pairCount; i++) {
+        keys[i] = ((long) scoreRank(scores[i], distinct) << scoreShift)
+            | ((long) targetRankById[targetIds[i]] << targetShift)
+            | candidateRankById[candidateIds[i]];
+      }
+      Arrays.parallelSort(keys);
+      scoreRanks = null;
+      targetRanks = null;
+      candidateRanks = null;
+      return;
+    }
+    keys = null;
+    int[] unsortedScoreRanks = new int[pairCount];
+    Integer[] order = new Integer[pairCount];
+    for (int i = 0; i < pairCount; i++) {
+      unsortedScoreRanks[i] = scoreRank(scores[i], distinct);
+      order[i] = Integer.valueOf(i);
+    }
+    Arrays.parallelSort(order, Comparator
+        .comparingInt((Integer i) -> unsortedScoreRanks[i.intValue()])
+        .thenComparingInt(i -> targetRankById[targetIds[i.intValue()]])
+        .thenComparingInt(i -> candidateRankById[candidateIds[i.intValue()]]));
+    scoreRanks = new int[pairCount];
+    targetRanks = new int[pairCount];
+    candidateRanks = new int[pairCount];
+    for (int i = 0; i < pairCount; i++) {
+      int pair = order[i].intValue();
+      scoreRanks[i] = unsortedScoreRanks[pair];
+      targetRanks[i] = targetRankById[targetIds[pair]];
+      candidateRanks[i] = candidateRankById[candidateIds[pair]];
+    }
+  }
+
+  /**
+   * Sorts the matches of each target.
+   * @param targetToMatchesMap the matches of each target
+   * @param monitor the monitor told that scores are being sorted
+   * @return the sorted triples
+   */
+  static ScoredPairs create(Map<Feature, Matches> targetToMatchesMap, TaskMonitor monitor) {
+    monitor.report("Sorting scores");
+    return create(targetToMatchesMap);
+  }
+
+  /**
+   * Sorts the matches of each target, without reporting progress.
+   * @param targetToMatchesMap the matches of each target
+   * @return the sorted triples
+   */
+  static ScoredPairs create(Map<Feature, Matches> targetToMatchesMap) {
+    return new ScoredPairs(targetToMatchesMap, true);
+  }
+
+  /**
+   * Sorts the matches of each target without packing them, as done when the
+   * ranks do not fit in a long.
+   * @param targetToMatchesMap the matches of each target
+   * @return the sorted triples
+   */
+  static ScoredPairs createUnpacked(Map<Feature, Matches> targetToMatchesMap) {
+    return new ScoredPairs(targetToMatchesMap, false);
+  }
+
+  private int scoreRank(double score, int distinct) {
+    if (Double.isNaN(score)) {
+      return distinct - 1;
+    }
+    //scoreByRank is decreasing, apart from a trailing NaN.
+    int low = 0;
+    int high = Double.isNaN(scoreByRank[distinct - 1]) ? distinct - 2 : distinct - 1;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (scoreByRank[mid] > score) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Returns whether the ranks of the triples fit in the 63 low bits of a
+   * long, so that the packed keys are non-negative and sort like the triples.
+   * @param candidateRanks the number of distinct candidates
+   * @param targetRanks the number of distinct targets
+   * @param scoreRanks the number of distinct scores
+   * @return false if the ranks need more than 63 bits
+   */
+  static boolean isPackable(int candidateRanks, int targetRanks, int scoreRanks) {
+    return bits(candidateRanks) + bits(targetRanks) + bits(scoreRanks) <= 63;
+  }
+
+  private static int bits(int count) {
+    return count <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(count - 1);
+  }
+
+  /**
+   * @return the number of triples
+   */
+  int size() {
+    return size;
+  }
+
+  double getScore(int i) {
+    return scoreByRank[keys != null ? (int) (keys[i] >>> scoreShift) : scoreRanks[i]];
+  }
+
+  Feature getTarget(int i) {
+    return targetByRank[targetRank(i)];
+  }
+
+  Feature getCandidate(int i) {
+    return candidateByRank[candidateRank(i)];
+  }
+
+  /**
+   * @return the dense index of the target of the i-th triple; equal targets
+   * have the same index
+   */
+  int getTargetIndex(int i) {
+    return targetIndexByRank[targetRank(i)];
+  }
+
+  /**
+   * @return the dense index of the candidate of the i-th triple; equal
+   * candidates have the same index
+   */
+  int getCandidateIndex(int i) {
+    return candidateIndexByRank[candidateRank(i)];
+  }
+
+  /**
+   * @return the number of target indices
+   */
+  int getTargetCount() {
+    return targetCount;
+  }
+
+  /**
+   * @return the number of candidate indices
+   */
+  int getCandidateCount() {
+    return candidateCount;
+  }
+
+  private int targetRank(int i) {
+    return keys != null ? (int) ((keys[i] >>> targetShift) & targetMask) : targetRanks[i];
+  }
+
+  private int candidateRank(int i) {
+    return keys != null ? (int) (keys[i] & candidateMask) : candidateRanks[i];
+  }
+
+  /**
+   * Ranks the features met, by Feature#compareTo.
+   */
+  private static class Ranking {
+    private final Map<Feature, Integer> ids = new IdentityHashMap<>();
+    private Feature[] features = new Feature[16];
+    Feature[] byRank;
+    int[] indexByRank;
+    int indexCount;
+
+    /**
+     * @return the id of the feature, in the order features are first met
+     */
+    int add(Feature feature) {
+      Integer id = ids.get(feature);
+      if (id == null) {
+        id = Integer.valueOf(ids.size());
+        ids.put(feature, id);
+        if (id.intValue() == features.length) {
+          features = Arrays.copyOf(features, 2 * features.length);
+        }
+        features[id.intValue()] = feature;
+      }
+      return id.intValue();
+    }
+
+    /**
+     * @return the rank of each id; features comparing equal share the rank of
+     * the first one met
+     */
+    int[] rank() {
+      int n = ids.size();
+      Integer[] order = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        order[i] = Integer.valueOf(i);
+      }
+      //Stable, so the first feature met comes first among equal ones.
+      Arrays.sort(order, Comparator.comparing((Integer id) -> features[id.intValue()]));
+      int[] ranks = new int[n];
+      Feature[] ranked = new Feature[n];
+      int rankCount = 0;
+      for (int i = 0; i < n; i++) {
+        Feature feature = features[order[i].intValue()];
+        if (rankCount == 0 || ranked[rankCount - 1].compareTo(feature) != 0) {
+          ranked[rankCount++] = feature;
+        }
+        ranks[order[i].intValue()] = rankCount - 1;
+      }
+      byRank = Arrays.copyOf(ranked, rankCount);
+      indexByRank = new int[rankCount];
+      Map<Feature, Integer> indices = new HashMap<>();
+      for (int r = 0; r < rankCount; r++) {
+        Integer index = indices.get(byRank[r]);
+        if (index == null) {
+          index = Integer.valueOf(indices.size());
+          indices.put(byRank[r], index);
+        }
+        indexByRank[r] = index.intValue();
+      }
+      indexCount = indices.size();
+      return ranks;
+    }
+  }
+}
@@ -35,6 +35,8 @@
 package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
 
 /**
  * Uses symmetric difference as the criterion for determining match scores.
@@ -44,6 +46,22 @@ public class SymDiffMatcher extends IndependentCandidateMatcher {
   public SymDiffMatcher() {
   }
 
+  /**
+   * Gets the intersection areas from IntersectionAreas, shared with the other
+   * matchers evaluating the same target.
+   * Method not part of the original JCS code.
+   */
+  @Override
+  public Matches match(Feature target, FeatureCollection candidates) {
+    IntersectionAreas intersectionAreas = IntersectionAreas.forTarget(target);
+    Matches matches = new Matches(candidates.getFeatureSchema());
+    for (Feature candidate : candidates) {
+      double score = score(intersectionAreas, candidate);
+      if (score > 0) { matches.add(candidate, score); }
+    }
+    return matches;
+  }
+
   /**
    * The score is a linear function of the symmetric difference: 1 if the shapes perfectly
    * overlap; 0 if the shapes do not overlap at all.
@@ -53,13 +71,37 @@ public class SymDiffMatcher extends IndependentCandidateMatcher {
    */
   @Override
   public double match(Geometry target, Geometry candidate) {
-    Geometry targetGeom = (Geometry) target.clone();
-    Geometry candidateGeom = (Geometry) candidate.clone();
-    if (targetGeom.isEmpty() || candidateGeom.isEmpty()) {
+    if (target.isEmpty() || candidate.isEmpty()) {
       return 0; //avoid div by 0 in centre-of-mass calc [Jon Aquino]
     }
-    return MatcherUtil.toScoreFromSymDiffArea(
-        targetGeom.getArea(), candidateGeom.getArea(),
-        targetGeom.symDifference(candidateGeom).getArea());
+    return score(target.getArea(), candidate.getArea(),
+        IntersectionAreas.compute(target, candidate));
+  }
+
+  /**
+   * Same as #match(Geometry, Geometry), with the cached areas.
+   * Method not part of the original JCS code.
+   */
+  @Override
+  public double match(Feature target, Feature candidate) {
+    return score(IntersectionAreas.forTarget(target), candidate);
+  }
+
+  private static double score(IntersectionAreas intersectionAreas, Feature candidate) {
+    if (intersectionAreas.getTargetDescriptors().getGeometry().isEmpty()
+        || candidate.getGeometry().isEmpty()) {
+      return 0;
+    }
+    return score(intersectionAreas.getTargetDescriptors().getArea(),
+        GeometryDescriptors.of(candidate).getArea(), intersectionAreas.get(candidate));
+  }
+
+  /**
+   * The symmetric difference area is the sum of the areas minus twice the
+   * intersection area, so no symDifference overlay is needed.
+   */
+  private static double score(double targetArea, double candidateArea, double intersectionArea) {
+    return MatcherUtil.toScoreFromSymDiffArea(targetArea, candidateArea,
+        Math.max(0, targetArea + candidateArea - 2 * intersectionArea));
   }
 }
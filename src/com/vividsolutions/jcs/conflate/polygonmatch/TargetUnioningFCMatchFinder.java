@@ -31,19 +31,18 @@
  */
 package com.vividsolutions.jcs.conflate.polygonmatch;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
-import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.util.Assert;
 import com.vividsolutions.jump.feature.BasicFeature;
@@ -53,8 +52,7 @@ import com.vividsolutions.jump.feature.FeatureDataset;
 import com.vividsolutions.jump.feature.FeatureSchema;
 import com.vividsolutions.jump.feature.IndexedFeatureCollection;
 import com.vividsolutions.jump.task.TaskMonitor;
-import com.vividsolutions.jump.util.CollectionUtil;
-import com.vividsolutions.jump.util.CoordinateArrays;
+import com.vividsolutions.jump.util.CoordinateTraversal;
 
 /**
  *  An FCMatchFinder wrapper that also treats unions of adjacent target features
@@ -156,25 +154,24 @@ public class TargetUnioningFCMatchFinder implements FCMatchFinder {
         Map<Feature, Matches> compositeTargetToMatchesMap,
         FeatureSchema candidateSchema,
         TaskMonitor monitor) {
-        List<Feature> targetConstituentsEncountered = new ArrayList<>();
+        Set<Feature> targetConstituentsEncountered = new HashSet<>();
         List<Feature> compositeTargets = new ArrayList<>();
         List<Feature> candidates = new ArrayList<>();
         List<Double> scores = new ArrayList<>();
-        SortedSet<DisambiguationMatch> matchSet =
-            DisambiguationMatch.createDisambiguationMatches(compositeTargetToMatchesMap, monitor);
+        ScoredPairs pairs = ScoredPairs.create(compositeTargetToMatchesMap, monitor);
         monitor.report("Discarding inferior composite matches");
-        int j = 0;
-        outer : for (DisambiguationMatch match : matchSet) {
-            monitor.report(++j, matchSet.size(), "matches");
-            for (Feature targetConstituent : ((CompositeFeature) match.getTarget()).getFeatures()) {
+        outer : for (int j = 0; j < pairs.size(); j++) {
+            monitor.report(j + 1, pairs.size(), "matches");
+            CompositeFeature compositeTarget = (CompositeFeature) pairs.getTarget(j);
+            for (Feature targetConstituent : compositeTarget.getFeatures()) {
                 if (targetConstituentsEncountered.contains(targetConstituent)) {
                     continue outer;
                 }
             }
-            compositeTargets.add(match.getTarget());
-            candidates.add(match.getCandidate());
-            scores.add(Double.valueOf(match.getScore()));
-            targetConstituentsEncountered.addAll(((CompositeFeature) match.getTarget()).getFeatures());
+            compositeTargets.add(compositeTarget);
+            candidates.add(pairs.getCandidate(j));
+            scores.add(Double.valueOf(pairs.getScore(j)));
+            targetConstituentsEncountered.addAll(compositeTarget.getFeatures());
         }
         Map<Feature, Matches> newMap = new HashMap<>();
         for (int i = 0; i < compositeTargets.size(); i++) {
@@ -186,54 +183,8 @@ public class TargetUnioningFCMatchFinder implements FCMatchFinder {
         }
         return newMap;
     }
-    private List<Feature> featuresWithCommonEdge(Feature feature, FeatureCollection fc) {
-        List<Feature> featuresWithCommonEdge = new ArrayList<>();
-        List<Feature> candidates = fc.query(feature.getGeometry().getEnvelopeInternal());
-        for (Feature candidate : candidates) {
-            if (feature == candidate
-                || shareEdge(feature.getGeometry(), candidate.getGeometry())) {
-                featuresWithCommonEdge.add(candidate);
-            }
-        }
-        return featuresWithCommonEdge;
-    }
     protected boolean shareEdge(Geometry a, Geometry b) {
-        Set<Edge> aEdges = edges(a);
-        Set<Edge> bEdges = edges(b);
-        for (Edge bEdge : bEdges) {
-            if (aEdges.contains(bEdge)) {
-                return true;
-            }
-        }
-        return false;
-    }
-    private static class Edge implements Comparable<Edge> {
-        private Coordinate p0, p1;
-        public Edge(Coordinate a, Coordinate b) {
-            if (a.compareTo(b) < 1) {
-                p0 = a;
-                p1 = b;
-            } else {
-                p0 = b;
-                p1 = a;
-            }
-        }
-        @Override
-        public int compareTo(Edge other) {
-            int result = p0.compareTo(other.p0);
-            if (result != 0)
-                return result;
-            return p1.compareTo(other.p1);
-        }
-    }
-    private Set<Edge> edges(Geometry g) {
-        Set<Edge> edges = new TreeSet<>();
-        for (Coordinate[] coordinates : CoordinateArrays.toCoordinateArrays(g, false)) {
-            for (int j = 1; j < coordinates.length; j++) { //1
-                edges.add(new Edge(coordinates[j], coordinates[j - 1]));
-            }
-        }
-        return edges;
+        return CoordinateTraversal.haveCommonSegment(a, b);
     }
     /**
      *  Splits each composite target into its constituent features.
@@ -259,44 +210,35 @@ public class TargetUnioningFCMatchFinder implements FCMatchFinder {
     }
     private Set<CompositeFeature> createCompositeSet(FeatureCollection fc, TaskMonitor monitor) {
         monitor.report("Creating composites of adjacent features");
-        int featuresProcessed = 0;
-        int totalFeatures = fc.getFeatures().size();
         //Use a Set to prevent duplicate composites [Jon Aquino]
-        Set<CompositeFeature> composites = new HashSet<>();
-        for (Iterator<Feature> i = fc.getFeatures().iterator();
-            i.hasNext() && !monitor.isCancelRequested();
-            ) {
-            Feature feature = i.next();
-            featuresProcessed++;
-            monitor.report(featuresProcessed, totalFeatures, "features");
-            List<Feature> featuresWithCommonEdge = featuresWithCommonEdge(feature, fc);
-            for (Iterator<List<Feature>> j =
-                CollectionUtil
-                    .combinations(featuresWithCommonEdge, maxCompositeSize, feature)
-                    .iterator();
-                j.hasNext() && !monitor.isCancelRequested();
-                ) {
-                List<Feature> combination = j.next();
-                composites.add(new CompositeFeature(fc.getFeatureSchema(), combination));
-            }
+        Set<CompositeFeature> composites = new LinkedHashSet<>();
+        //Each connected set is only produced once, so no union is computed for
+        //a duplicate.
+        for (List<Feature> connectedSet : AdjacentComposites.connectedSets(
+            fc,
+            maxCompositeSize,
+            (a, b) -> shareEdge(a.getGeometry(), b.getGeometry()),
+            monitor)) {
+            composites.add(new CompositeFeature(fc.getFeatureSchema(), connectedSet));
         }
         return composites;
     }
 
     public static class CompositeFeature extends BasicFeature {
         private List<Feature> features;
+        private Feature[] key;
         private int hashCode;
         public CompositeFeature(FeatureSchema schema, List<Feature> features) {
             super(schema);
             this.features = features;
             Geometry union = features.get(0).getGeometry();
-            hashCode = features.get(0).hashCode();
             for (int i = 1; i < features.size(); i++) {
                 Feature feature = features.get(i);
                 union = union.union(feature.getGeometry());
-                hashCode = Math.min(hashCode, feature.hashCode());
             }
             setGeometry(union);
+            key = AdjacentComposites.canonicalKey(features);
+            hashCode = Arrays.hashCode(key);
         }
         public List<Feature> getFeatures() {
             return features;
@@ -305,15 +247,7 @@ public class TargetUnioningFCMatchFinder implements FCMatchFinder {
         public boolean equals(Object obj) {
             Assert.isTrue(obj instanceof CompositeFeature, obj.getClass().toString());
             CompositeFeature other = (CompositeFeature) obj;
-            if (features.size() != other.features.size()) {
-                return false;
-            }
-            for (Feature myFeature : features) {
-                if (!other.features.contains(myFeature)) {
-                    return false;
-                }
-            }
-            return true;
+            return hashCode == other.hashCode && Arrays.equals(key, other.key);
         }
         @Override
         public int hashCode() {
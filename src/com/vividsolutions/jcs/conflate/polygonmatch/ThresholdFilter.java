@@ -52,6 +52,14 @@ public class ThresholdFilter implements FeatureMatcher {
 
   private double minScore;
 
+  /**
+   * Method not part of the original JCS code.
+   * @return the score below which shapes are filtered out
+   */
+  public double getMinScore() {
+    return minScore;
+  }
+
   /**
    * Filters out shapes with a score below the minimum score threshold.
    * @param target ignored
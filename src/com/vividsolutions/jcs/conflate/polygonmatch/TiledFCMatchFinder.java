@@ -0,0 +1,227 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.util.Assert;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.feature.FeatureDataset;
+import com.vividsolutions.jump.feature.IndexedFeatureCollection;
+import com.vividsolutions.jump.geom.EnvelopeUtil;
+import com.vividsolutions.jump.task.TaskMonitor;
+
+/**
+ * Splits the combined extent of the target and candidate collections into a
+ * grid of square tiles, and runs the wrapped FCMatchFinder independently on
+ * each tile.
+ * <P>
+ * Each target is owned by the single tile containing the centre of its
+ * envelope. A tile is given its own targets, and the candidates lying within
+ * a halo around them, each in a small IndexedFeatureCollection. The halo is
+ * the search distance of the wrapped finder's FeatureMatcher (see
+ * MatcherUtil#searchDistance): the window buffer or maximum distance of a
+ * single matcher, the smallest of them over a ChainMatcher, whose survivors
+ * pass each matcher, and the largest over a WeightedMatcher, which keeps the
+ * candidates passing any matcher. Within a ChainMatcher, the matchers after a
+ * NearestCandidatesMatcher are left out, so that the halo covers everything
+ * it chooses the nearest candidates from. Every candidate that could match a
+ * target, or change its matches, is thus seen by its tile.
+ * <P>
+ * The wrapped finder must compute each target's matches independently of the
+ * other targets, typically a BasicFCMatchFinder. One-to-one finders such as
+ * DisambiguatingFCMatchFinder must wrap this finder, not be wrapped by it.
+ * If the search distance cannot be bounded, the wrapped finder is run on
+ * the whole collections.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class TiledFCMatchFinder implements FCMatchFinder {
+
+    /**
+     * Delay between two progress reports while waiting for the worker threads.
+     */
+    private static final long REPORT_INTERVAL_MILLIS = 200;
+
+    private final double tileSize;
+    private final int parallelism;
+    private final FCMatchFinder matchFinder;
+
+    /**
+     * @param tileSize the width and height of a tile, in map units
+     * @param parallelism the number of tiles processed at the same time, or 0
+     * to use one thread per available processor
+     * @param matchFinder the FCMatchFinder to run on each tile
+     */
+    public TiledFCMatchFinder(double tileSize, int parallelism, FCMatchFinder matchFinder) {
+        Assert.isTrue(tileSize > 0, "Tile size = " + tileSize);
+        this.tileSize = tileSize;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.matchFinder = matchFinder;
+    }
+
+    /**
+     * @return the FCMatchFinder run on each tile
+     */
+    public FCMatchFinder getMatchFinder() {
+        return matchFinder;
+    }
+
+    @Override
+    public Map<Feature, Matches> match(
+        FeatureCollection targetFC,
+        FeatureCollection candidateFC,
+        TaskMonitor monitor) {
+        monitor.allowCancellationRequests();
+        double halo = halo(matchFinder);
+        if (Double.isInfinite(halo) || targetFC.isEmpty()) {
+            return matchFinder.match(targetFC, candidateFC, monitor);
+        }
+        monitor.report("Splitting into tiles");
+        List<Tile> tiles = createTiles(targetFC, candidateFC.getEnvelope());
+        monitor.report("Finding matches");
+        List<Map<Feature, Matches>> tileResults = matchTiles(tiles, candidateFC, halo, monitor);
+        Map<Feature, Matches> map = new TreeMap<>();
+        for (Map<Feature, Matches> tileResult : tileResults) {
+            if (tileResult != null) {
+                map.putAll(tileResult);
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Returns the halo needed around each tile's targets.
+     */
+    private static double halo(FCMatchFinder finder) {
+        if (finder instanceof BasicFCMatchFinder) {
+            return MatcherUtil.searchDistance(((BasicFCMatchFinder) finder).getMatcher());
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Assigns each target to the tile containing its envelope centre. Empty
+     * tiles are not created.
+     */
+    private List<Tile> createTiles(FeatureCollection targetFC, Envelope candidateEnvelope) {
+        Envelope extent = new Envelope(targetFC.getEnvelope());
+        extent.expandToInclude(candidateEnvelope);
+        int columns = Math.max(1, (int) Math.ceil(extent.getWidth() / tileSize));
+        int rows = Math.max(1, (int) Math.ceil(extent.getHeight() / tileSize));
+        Map<Long, Tile> tileMap = new TreeMap<>();
+        for (Feature target : targetFC) {
+            Coordinate centre = target.getGeometry().getEnvelopeInternal().centre();
+            if (centre == null) {
+                //Empty geometry: cannot match anything, give it to the first tile.
+                centre = new Coordinate(extent.getMinX(), extent.getMinY());
+            }
+            int column = Math.min(columns - 1, (int) ((centre.x - extent.getMinX()) / tileSize));
+            int row = Math.min(rows - 1, (int) ((centre.y - extent.getMinY()) / tileSize));
+            Long key = Long.valueOf((long) row * columns + column);
+            Tile tile = tileMap.get(key);
+            if (tile == null) {
+                tile = new Tile(targetFC);
+                tileMap.put(key, tile);
+            }
+            tile.add(target);
+        }
+        return new ArrayList<>(tileMap.values());
+    }
+
+    private List<Map<Feature, Matches>> matchTiles(
+        List<Tile> tiles,
+        FeatureCollection candidateFC,
+        double halo,
+        TaskMonitor monitor) {
+        List<Map<Feature, Matches>> results = new ArrayList<>();
+        for (int i = 0; i < tiles.size(); i++) {
+            results.add(null);
+        }
+        AtomicInteger tilesProcessed = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<ForkJoinTask<?>> tasks = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int i = 0; i < tiles.size(); i++) {
+                final int index = i;
+                final Tile tile = tiles.get(i);
+                tasks.add(pool.submit(() -> {
+                    if (!cancelled.get()) {
+                        results.set(index, tile.match(candidateFC, halo, cancelled));
+                    }
+                    tilesProcessed.incrementAndGet();
+                }));
+            }
+            //Only this thread talks to the monitor, which need not be thread-safe.
+            for (ForkJoinTask<?> task : tasks) {
+                while (!task.isDone()) {
+                    monitor.report(tilesProcessed.get(), tiles.size(), "tiles");
+                    if (monitor.isCancelRequested()) {
+                        cancelled.set(true);
+                    }
+                    try {
+                        task.get(REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        //Not done yet: report progress again.
+                    }
+                }
+                task.get();
+            }
+            monitor.report(tilesProcessed.get(), tiles.size(), "tiles");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled.set(true);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * The targets owned by one tile.
+     */
+    private class Tile {
+        private final FeatureDataset targets;
+        private final Envelope targetEnvelope = new Envelope();
+
+        Tile(FeatureCollection targetFC) {
+            targets = new FeatureDataset(targetFC.getFeatureSchema());
+        }
+
+        void add(Feature target) {
+            targets.add(target);
+            targetEnvelope.expandToInclude(target.getGeometry().getEnvelopeInternal());
+        }
+
+        Map<Feature, Matches> match(FeatureCollection candidateFC, double halo, AtomicBoolean cancelled) {
+            FeatureDataset candidates = new FeatureDataset(candidateFC.getFeatureSchema());
+            if (!targetEnvelope.isNull()) {
+                candidates.addAll(candidateFC.query(EnvelopeUtil.expand(targetEnvelope, halo)));
+            }
+            return matchFinder.match(
+                new IndexedFeatureCollection(targets),
+                new IndexedFeatureCollection(candidates),
+                new WorkerMonitor(cancelled));
+        }
+    }
+}
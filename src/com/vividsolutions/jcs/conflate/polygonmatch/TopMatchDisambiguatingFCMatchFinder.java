@@ -32,10 +32,8 @@
 package com.vividsolutions.jcs.conflate.polygonmatch;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 
-import com.vividsolutions.jts.util.Assert;
 import com.vividsolutions.jump.feature.Feature;
 import com.vividsolutions.jump.feature.FeatureCollection;
 import com.vividsolutions.jump.task.TaskMonitor;
@@ -63,6 +61,13 @@ public class TopMatchDisambiguatingFCMatchFinder implements FCMatchFinder {
         this.matchFinder = matchFinder;
     }
 
+    /**
+     * @return the FCMatchFinder whose matches are filtered
+     */
+    public FCMatchFinder getMatchFinder() {
+        return matchFinder;
+    }
+
     @Override
     public Map<Feature, Matches> match(
         FeatureCollection targetFC,
@@ -71,20 +76,13 @@ public class TopMatchDisambiguatingFCMatchFinder implements FCMatchFinder {
         Map<Feature, Matches> originalTargetToMatchesMap =
             matchFinder.match(targetFC, candidateFC, monitor);
         monitor.allowCancellationRequests();
-        monitor.report("Finding best forward matches");
-        Map<Feature, Matches> bestForwardMatches = filterMatches(originalTargetToMatchesMap, monitor);
-        monitor.report("Finding best reverse matches");
-        Map<Feature, Matches> bestReverseMatches =
-            filterMatches(invert(originalTargetToMatchesMap, monitor), monitor);
         monitor.report("Finding common best matches");
+        ScoreMatrix scores = ScoreMatrix.of(originalTargetToMatchesMap);
         //Want matches that are "best" regardless of whether forward or reverse.
         //This is the only scheme I can think of right now that will satisfy
         //the case described in the class comment. [Jon Aquino]
         Map<Feature, Matches> filteredTargetToMatchesMap =
-            commonMatches(
-                bestForwardMatches,
-                invert(bestReverseMatches, monitor),
-                monitor);
+            scores.toMap(scores.mutualTopEntries(), candidateFC.getFeatureSchema());
         //Put back the targets that were filtered out (albeit with no matches). [Jon Aquino]
         Map<Feature, Matches> targetToMatchesMap =
             AreaFilterFCMatchFinder.blankTargetToMatchesMap(
@@ -94,80 +92,11 @@ public class TopMatchDisambiguatingFCMatchFinder implements FCMatchFinder {
         return targetToMatchesMap;
     }
 
-    private Map<Feature, Matches> commonMatches(
-        Map<Feature, Matches> featureToMatchesMap1,
-        Map<Feature, Matches> featureToMatchesMap2,
-        TaskMonitor monitor) {
-        int featuresProcessed = 0;
-        int totalFeatures = featureToMatchesMap1.size();
-        Map<Feature, Matches> commonMatches = new HashMap<>();
-        for (Iterator<Feature> i = featureToMatchesMap1.keySet().iterator();
-            i.hasNext() && !monitor.isCancelRequested();
-            ) {
-            Feature key1 = i.next();
-            featuresProcessed++;
-            monitor.report(featuresProcessed, totalFeatures, "features");
-            if (!featureToMatchesMap2.containsKey(key1)) {
-                continue;
-            }
-            Matches matches1 = featureToMatchesMap1.get(key1);
-            Matches matches2 = featureToMatchesMap2.get(key1);
-            if (matches1.getTopMatch() == matches2.getTopMatch()) {
-                Assert.isTrue(matches1.getTopScore() == matches2.getTopScore());
-                commonMatches.put(key1, matches1);
-            }
-        }
-        return commonMatches;
-    }
-
-    private Map<Feature, Matches> filterMatches(Map<Feature, Matches> featureToMatchesMap, TaskMonitor monitor) {
-        int featuresProcessed = 0;
-        int totalFeatures = featureToMatchesMap.size();
-        Map<Feature, Matches> newMap = new HashMap<>();
-        if (featureToMatchesMap.isEmpty()) {
-            return newMap;
-        }
-        for (Iterator<Feature> i = featureToMatchesMap.keySet().iterator();
-            i.hasNext() && !monitor.isCancelRequested();
-            ) {
-            Feature feature = i.next();
-            featuresProcessed++;
-            monitor.report(featuresProcessed, totalFeatures, "features filtered");
-            Matches oldMatches = featureToMatchesMap.get(feature);
-            if (oldMatches.isEmpty()) {
-                continue;
-            }
-            Matches newMatches = new Matches(oldMatches.getFeatureSchema());
-            newMatches.add(oldMatches.getTopMatch(), oldMatches.getTopScore());
-            newMap.put(feature, newMatches);
-        }
-        return newMap;
-    }
-
     protected Map<Feature, Matches> invert(Map<Feature, Matches> featureToMatchesMap, TaskMonitor monitor) {
-        int featuresProcessed = 0;
-        int totalFeatures = featureToMatchesMap.size();
-        Map<Feature, Matches> newMap = new HashMap<>();
         if (featureToMatchesMap.isEmpty()) {
-            return newMap;
-        }
-        for (Iterator<Feature> i = featureToMatchesMap.keySet().iterator();
-            i.hasNext() && !monitor.isCancelRequested();
-            ) {
-            Feature oldKey = i.next();
-            featuresProcessed++;
-            monitor.report(featuresProcessed, totalFeatures, "features inverted");
-            Matches oldMatches = featureToMatchesMap.get(oldKey);
-            for (int j = 0; j < oldMatches.size(); j++) {
-                Feature newKey = oldMatches.getFeature(j);
-                Matches newMatches = newMap.get(newKey);
-                if (newMatches == null) {
-                    newMatches = new Matches(oldKey.getSchema());
-                }
-                newMatches.add(oldKey, oldMatches.getScore(j));
-                newMap.put(newKey, newMatches);
-            }
+            return new HashMap<>();
         }
-        return newMap;
+        ScoreMatrix scores = ScoreMatrix.of(featureToMatchesMap);
+        return scores.transpose().toMap(scores.getTarget(0).getSchema());
     }
 }
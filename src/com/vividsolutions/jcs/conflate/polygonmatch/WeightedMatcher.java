@@ -31,13 +31,17 @@
  */
 package com.vividsolutions.jcs.conflate.polygonmatch;
 
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.Set;
 
 import com.vividsolutions.jts.util.Assert;
 import com.vividsolutions.jump.feature.Feature;
 import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.feature.FeatureDataset;
 import com.vividsolutions.jump.feature.FeatureSchema;
 
 /**
@@ -57,6 +61,20 @@ public class WeightedMatcher implements FeatureMatcher {
           ((Number) matchersAndWeights[i]).doubleValue());
       //Number rather than Double so parties (e.g. Jython) can pass in Integers. [Jon Aquino]
     }
+    matchers = matcherToWeightMap.keySet().toArray(new FeatureMatcher[matcherToWeightMap.size()]);
+    double weightTotal = 0;
+    for (Double weight : matcherToWeightMap.values()) {
+      weightTotal += weight.doubleValue();
+    }
+    normalizedWeights = new double[matchers.length];
+    for (int i = 0; i < matchers.length; i++) {
+      normalizedWeights[i] = matcherToWeightMap.get(matchers[i]).doubleValue() / weightTotal;
+    }
+    evaluationOrder = new Integer[matchers.length];
+    for (int i = 0; i < matchers.length; i++) {
+      evaluationOrder[i] = Integer.valueOf(i);
+    }
+    Arrays.sort(evaluationOrder, Comparator.comparingDouble(i -> MatcherPlanner.estimatedCost(matchers[i])));
   }
 
   /**
@@ -73,74 +91,335 @@ public class WeightedMatcher implements FeatureMatcher {
     matcherToWeightMap.put(matcher, Double.valueOf(weight));
   }
 
-  private Map<FeatureMatcher, Double> matcherToWeightMap = new HashMap<>();
+  /**
+   * Keeps the matchers in the order they are added, so that #matchers does not
+   * depend on their identity hash codes.
+   */
+  private Map<FeatureMatcher, Double> matcherToWeightMap = new LinkedHashMap<>();
+
+  /**
+   * The matchers and their weights divided by the weight total, computed once.
+   * Fields not part of the original JCS code.
+   */
+  private FeatureMatcher[] matchers;
+  private double[] normalizedWeights;
+
+  /**
+   * Indices of the matchers, cheapest first.
+   */
+  private Integer[] evaluationOrder;
+
+  /**
+   * Per-thread score accumulator, reused from one target to the next.
+   */
+  private final ThreadLocal<ScoreAccumulator> accumulator = new ThreadLocal<ScoreAccumulator>() {
+    @Override
+    protected ScoreAccumulator initialValue() {
+      return new ScoreAccumulator(matchers.length);
+    }
+  };
+
+  /**
+   * @return the matchers having a non-zero weight
+   */
+  public Set<FeatureMatcher> getMatchers() {
+    return Collections.unmodifiableSet(matcherToWeightMap.keySet());
+  }
+
+  /**
+   * Method not part of the original JCS code.
+   * @param matcher one of the matchers
+   * @return the weight given to the scores of the matcher, as passed to the
+   * constructor
+   */
+  public double getWeight(FeatureMatcher matcher) {
+    return matcherToWeightMap.get(matcher).doubleValue();
+  }
 
   /**
    * Searches a collection of candidate features for those that match the given
    * target feature, using each FeatureMatcher.
    * @param target the feature to match
    * @param candidates the features to search for matches
-   * @return the candidates that pass at least one FeatureMatcher. Each score is
-   * a weighted average of the scores from the FeatureMatchers.
+   * @return the candidates that pass at least one FeatureMatcher, in feature
+   * order. Each score is a weighted average of the scores from the
+   * FeatureMatchers.
    */
     @Override
   public Matches match(Feature target, FeatureCollection candidates) {
-    if (weightTotal() == 0) { return new Matches(candidates.getFeatureSchema()); }
-    Map<FeatureMatcher, Matches> matcherToMatchesMap = matcherToMatchesMap(target, candidates);
-    Map<Feature, Double> featureToScoreMap = featureToScoreMap(matcherToMatchesMap);
-    return toMatches(featureToScoreMap, candidates.getFeatureSchema());
+    if (matchers.length == 0) { return new Matches(candidates.getFeatureSchema()); }
+    ScoreAccumulator scores = accumulator.get();
+    try {
+      for (int m = 0; m < matchers.length; m++) {
+        Matches matches = matchers[m].match(target, candidates);
+        for (int i = 0; i < matches.size(); i++) {
+          scores.add(scores.entry(matches.getFeature(i)), m, matches.getScore(i) * normalizedWeights[m]);
+        }
+      }
+      return scores.toMatches(candidates.getFeatureSchema());
+    } finally {
+      scores.clear();
+    }
   }
 
-  private Matches toMatches(Map<Feature, Double> featureToScoreMap, FeatureSchema schema) {
-    Matches matches = new Matches(schema);
-    for (Feature feature : featureToScoreMap.keySet()) {
-      double score = featureToScoreMap.get(feature).doubleValue();
-      matches.add(feature, score);
+  /**
+   * Margin kept when comparing score bounds, so that rounding errors never
+   * discard a candidate that would reach the bound.
+   */
+  private static final double BOUND_TOLERANCE = 1e-9;
+
+  /**
+   * Same as #match(Feature, FeatureCollection), but may leave out the
+   * candidates that cannot reach a minimum score, or cannot be the top match.
+   * <P>
+   * The FeatureMatchers are run from the cheapest to the most expensive, each
+   * on the candidates not left out yet. The score of a candidate can be no more
+   * than its current weighted sum plus the weights of the FeatureMatchers not
+   * run yet; the candidate is left out as soon as this upper bound falls below
+   * minScore, or below the current sum of another candidate if topOnly is set.
+   * The scores of the returned candidates are the same as with
+   * #match(Feature, FeatureCollection), and so is their order, whatever the
+   * order in which the FeatureMatchers are run.
+   * <P>
+   * Method not part of the original JCS code.
+   * @param target the feature to match
+   * @param candidates the features to search for matches
+   * @param minScore the score below which candidates are not needed
+   * @param topOnly true if only the candidates with the top score are needed
+   * @return at least the candidates having a score greater than or equal to
+   * minScore (and the top score if topOnly is set)
+   */
+  public Matches match(Feature target, FeatureCollection candidates, double minScore, boolean topOnly) {
+    if (matchers.length == 0) { return new Matches(candidates.getFeatureSchema()); }
+    for (FeatureMatcher matcher : matchers) {
+      if (MatcherUtil.requiresScoredCandidates(matcher)
+          || MatcherUtil.dependsOnCandidateSet(matcher)) {
+        //The scores read by the matcher, or the candidates it chooses from,
+        //would depend on the candidates left out.
+        return match(target, candidates);
+      }
+    }
+    ScoreAccumulator scores = accumulator.get();
+    try {
+      FeatureCollection remainingCandidates = candidates;
+      boolean unscoredDiscarded = false;
+      double remainingWeight = 1;
+      for (Integer index : evaluationOrder) {
+        int m = index.intValue();
+        Matches matches = matchers[m].match(target, remainingCandidates);
+        for (int i = 0; i < matches.size(); i++) {
+          scores.add(scores.entry(matches.getFeature(i)), m, matches.getScore(i) * normalizedWeights[m]);
+        }
+        remainingWeight -= normalizedWeights[m];
+        double bound = minScore;
+        if (topOnly) {
+          bound = Math.max(bound, scores.maxPartialSum());
+        }
+        boolean discarded = scores.discardBelow(bound - remainingWeight - BOUND_TOLERANCE);
+        //Candidates not scored yet have a bound of remainingWeight.
+        unscoredDiscarded |= remainingWeight + BOUND_TOLERANCE < bound;
+        if (unscoredDiscarded) {
+          remainingCandidates = scores.remainingFeatures(candidates.getFeatureSchema());
+        } else if (discarded) {
+          remainingCandidates = scores.remainingFeatures(candidates);
+        }
+      }
+      return scores.toMatches(candidates.getFeatureSchema());
+    } finally {
+      scores.clear();
     }
-    return matches;
   }
 
-  private Map<FeatureMatcher, Matches> matcherToMatchesMap(Feature feature, FeatureCollection candidates) {
-    HashMap<FeatureMatcher, Matches> matcherToMatchesMap = new HashMap<>();
-    for (FeatureMatcher matcher : matcherToWeightMap.keySet()) {
-      if (normalizedWeight(matcher) == 0) { continue; }
-      matcherToMatchesMap.put(matcher, matcher.match(feature, candidates));
+  /**
+   * Weighted scores of the candidates of one target, indexed by the order in
+   * which the candidates are first seen, and returned in feature order. Features are found by identity in an
+   * open-addressing table; all arrays are kept from one target to the next,
+   * so that no object is created per candidate.
+   * Class not part of the original JCS code.
+   */
+  private static final class ScoreAccumulator {
+    private final int matcherCount;
+    private Feature[] features = new Feature[16];
+    /** Weighted score of each entry from each matcher, entry by entry. */
+    private double[] scores;
+    /** Sum of the weighted scores of each entry, in evaluation order. */
+    private double[] partialSums = new double[16];
+    private boolean[] discarded = new boolean[16];
+    /** Table slot of each entry. */
+    private int[] slots = new int[16];
+    /** Entry index + 1 of each slot, 0 if the slot is free. */
+    private int[] table = new int[64];
+    /** Entries not discarded, sorted by #toMatches. */
+    private Feature[] sorted = new Feature[16];
+    private int size;
+
+    ScoreAccumulator(int matcherCount) {
+      this.matcherCount = matcherCount;
+      scores = new double[16 * matcherCount];
     }
-    return matcherToMatchesMap;
-  }
 
-  private Map<Feature, Double> featureToScoreMap(Map<FeatureMatcher, Matches> matcherToMatchesMap) {
-    Map<Feature, Double> featureToScoreMap = new TreeMap<>();
-    for (FeatureMatcher matcher : matcherToMatchesMap.keySet()) {
-      Matches matches = matcherToMatchesMap.get(matcher);
-      addToFeatureToScoreMap(matches, matcher, featureToScoreMap);
+    /**
+     * Returns the index of the entry of the given feature, creating it if needed.
+     */
+    int entry(Feature feature) {
+      int mask = table.length - 1;
+      int slot = hash(feature) & mask;
+      while (table[slot] != 0) {
+        int index = table[slot] - 1;
+        if (features[index] == feature) {
+          return index;
+        }
+        slot = (slot + 1) & mask;
+      }
+      if (2 * (size + 1) > table.length) {
+        grow();
+        return entry(feature);
+      }
+      if (size == features.length) {
+        int capacity = 2 * size;
+        features = Arrays.copyOf(features, capacity);
+        scores = Arrays.copyOf(scores, capacity * matcherCount);
+        partialSums = Arrays.copyOf(partialSums, capacity);
+        discarded = Arrays.copyOf(discarded, capacity);
+        slots = Arrays.copyOf(slots, capacity);
+      }
+      features[size] = feature;
+      Arrays.fill(scores, size * matcherCount, (size + 1) * matcherCount, 0);
+      partialSums[size] = 0;
+      discarded[size] = false;
+      slots[size] = slot;
+      table[slot] = size + 1;
+      return size++;
     }
-    return featureToScoreMap;
-  }
 
-  private void addToFeatureToScoreMap(Matches matches, FeatureMatcher matcher,
-                                      Map<Feature, Double> featureToScoreMap) {
-    for (int i = 0; i < matches.size(); i++) {
-      double score = matches.getScore(i) * normalizedWeight(matcher);
-      addToFeatureToScoreMap(matches.getFeature(i), score, featureToScoreMap);
+    /**
+     * Returns the index of the entry of the given feature, or -1.
+     */
+    int indexOf(Feature feature) {
+      int mask = table.length - 1;
+      int slot = hash(feature) & mask;
+      while (table[slot] != 0) {
+        int index = table[slot] - 1;
+        if (features[index] == feature) {
+          return index;
+        }
+        slot = (slot + 1) & mask;
+      }
+      return -1;
     }
-  }
 
-  private void addToFeatureToScoreMap(Feature feature, double score, Map<Feature, Double> featureToScoreMap) {
-    Double oldScore = featureToScoreMap.get(feature);
-    if (oldScore == null) { oldScore = Double.valueOf(0); }
-    featureToScoreMap.put(feature, Double.valueOf(oldScore.doubleValue() + score));
-  }
+    private static int hash(Feature feature) {
+      int h = System.identityHashCode(feature);
+      return h ^ (h >>> 16);
+    }
 
-  private double normalizedWeight(FeatureMatcher matcher) {
-    return matcherToWeightMap.get(matcher).doubleValue() / weightTotal();
-  }
+    private void grow() {
+      table = new int[2 * table.length];
+      int mask = table.length - 1;
+      for (int index = 0; index < size; index++) {
+        int slot = hash(features[index]) & mask;
+        while (table[slot] != 0) {
+          slot = (slot + 1) & mask;
+        }
+        table[slot] = index + 1;
+        slots[index] = slot;
+      }
+    }
 
-  private double weightTotal() {
-    double weightTotal = 0;
-    for (Double weight : matcherToWeightMap.values()) {
-      weightTotal += weight.doubleValue();
+    void add(int index, int matcher, double weightedScore) {
+      scores[index * matcherCount + matcher] = weightedScore;
+      partialSums[index] += weightedScore;
+    }
+
+    double maxPartialSum() {
+      double max = 0;
+      for (int index = 0; index < size; index++) {
+        if (!discarded[index]) {
+          max = Math.max(max, partialSums[index]);
+        }
+      }
+      return max;
+    }
+
+    /**
+     * Discards the entries whose partial sum is below the given value.
+     * @return true if some entries are discarded
+     */
+    boolean discardBelow(double value) {
+      boolean any = false;
+      for (int index = 0; index < size; index++) {
+        if (!discarded[index] && partialSums[index] < value) {
+          discarded[index] = true;
+        }
+        any |= discarded[index];
+      }
+      return any;
+    }
+
+    /**
+     * Returns the entries not discarded.
+     */
+    FeatureCollection remainingFeatures(FeatureSchema schema) {
+      FeatureDataset remaining = new FeatureDataset(schema);
+      for (int index = 0; index < size; index++) {
+        if (!discarded[index]) {
+          remaining.add(features[index]);
+        }
+      }
+      return remaining;
+    }
+
+    /**
+     * Returns the candidates not discarded, whether scored yet or not.
+     */
+    FeatureCollection remainingFeatures(FeatureCollection candidates) {
+      FeatureDataset remaining = new FeatureDataset(candidates.getFeatureSchema());
+      for (Feature candidate : candidates) {
+        int index = indexOf(candidate);
+        if (index < 0 || !discarded[index]) {
+          remaining.add(candidate);
+        }
+      }
+      return remaining;
+    }
+
+    /**
+     * Returns the entries not discarded, in feature order as the TreeMap of the
+     * original JCS code did, with their weighted scores summed in matcher
+     * order. The order in which the entries are first seen depends on the
+     * order in which the matchers are run, and would make ties between equal
+     * scores come out differently.
+     */
+    Matches toMatches(FeatureSchema schema) {
+      if (sorted.length < size) {
+        sorted = new Feature[features.length];
+      }
+      int count = 0;
+      for (int index = 0; index < size; index++) {
+        if (!discarded[index]) {
+          sorted[count++] = features[index];
+        }
+      }
+      Arrays.sort(sorted, 0, count);
+      Matches matches = new Matches(schema);
+      for (int i = 0; i < count; i++) {
+        int index = indexOf(sorted[i]);
+        sorted[i] = null;
+        double score = 0;
+        for (int m = index * matcherCount; m < (index + 1) * matcherCount; m++) {
+          score += scores[m];
+        }
+        matches.add(features[index], score);
+      }
+      return matches;
+    }
+
+    void clear() {
+      for (int index = 0; index < size; index++) {
+        table[slots[index]] = 0;
+        features[index] = null;
+      }
+      size = 0;
     }
-    return weightTotal;
   }
 }
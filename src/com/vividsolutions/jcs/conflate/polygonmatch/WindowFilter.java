@@ -60,6 +60,15 @@ public class WindowFilter implements FeatureMatcher {
   public WindowFilter() {}
 
   private double buffer;
+
+  /**
+   * Method not part of the original JCS code.
+   * @return the distance by which the target envelope is extended on each side
+   */
+  public double getBuffer() {
+    return buffer;
+  }
+
   /**
    * Quickly filters out shapes that lie outside a given distance from the feature's
    * envelope.
@@ -67,6 +67,12 @@ public class WindowMatcher implements FeatureMatcher {
   public void setBuffer(double buffer) { this.buffer = buffer; }
 
   private double buffer;
+
+  /**
+   * @return the amount by which the target envelope is extended on each side
+   */
+  public double getBuffer() { return buffer; }
+
   /**
    * Quickly filters out shapes that lie outside a given distance from the feature's
    * envelope.
@@ -0,0 +1,40 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.vividsolutions.jump.task.TaskMonitor;
+
+/**
+ * Monitor given to work done on a worker thread. Progress is not reported,
+ * the thread owning the real monitor reports it; cancellation is forwarded.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+class WorkerMonitor implements TaskMonitor {
+    private final AtomicBoolean cancelled;
+
+    WorkerMonitor(AtomicBoolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public void report(String description) {
+    }
+
+    @Override
+    public void report(int itemsDone, int totalItems, String itemDescription) {
+    }
+
+    @Override
+    public void report(Exception exception) {
+    }
+
+    @Override
+    public void allowCancellationRequests() {
+    }
+
+    @Override
+    public boolean isCancelRequested() {
+        return cancelled.get();
+    }
+}
@@ -1,8 +1,10 @@
 package com.vividsolutions.jump.feature;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class FeatureUtil {
 
-	private static int lastID = 0;
+	private static final AtomicInteger lastID = new AtomicInteger();
 
-	public static int nextID() { return ++lastID; }
+	public static int nextID() { return lastID.incrementAndGet(); }
 }
@@ -33,10 +33,18 @@ package com.vividsolutions.jump.feature;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.index.SpatialIndex;
+import com.vividsolutions.jts.index.strtree.AbstractNode;
+import com.vividsolutions.jts.index.strtree.Boundable;
+import com.vividsolutions.jts.index.strtree.ItemBoundable;
 import com.vividsolutions.jts.index.strtree.STRtree;
 
 /**
@@ -87,6 +95,92 @@ public class IndexedFeatureCollection extends FeatureCollectionWrapper {
         return result;
     }
 
+    /**
+     * Returns the features ordered by increasing distance between their
+     * envelope and the given envelope. The index is walked best-first, so
+     * only the nodes nearer than the last returned feature are expanded: a
+     * caller stopping after the first few features only pays for those.
+     * <P>
+     * As the envelope distance never decreases along the iteration, the
+     * envelope distance of the next feature is a lower bound of the envelope
+     * distance of all the remaining ones.
+     * <P>
+     * Method not part of the original JCS code.
+     * @param env the envelope to measure the distances from
+     * @return an iterator over all the features, nearest envelopes first
+     */
+    public Iterator<Feature> nearestFirst(Envelope env) {
+        if (spatialIndex instanceof STRtree) {
+            return new NearestFirstIterator((STRtree) spatialIndex, env);
+        }
+        List<Feature> features = new ArrayList<>(getFeatures());
+        Collections.sort(features, Comparator.comparingDouble(
+                f -> env.distance(f.getGeometry().getEnvelopeInternal())));
+        return features.iterator();
+    }
+
+    /**
+     * Best-first traversal of an STRtree: nodes and items share one queue
+     * ordered by envelope distance, an item being returned when it reaches the
+     * head of the queue.
+     */
+    private static class NearestFirstIterator implements Iterator<Feature> {
+        private final Envelope env;
+        private final PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+        private long entryCount = 0;
+
+        NearestFirstIterator(STRtree tree, Envelope env) {
+            this.env = env;
+            //getRoot() does not build the tree, unlike query().
+            tree.build();
+            AbstractNode root = tree.getRoot();
+            if (!root.isEmpty()) {
+                offer(root);
+            }
+        }
+
+        private void offer(Boundable boundable) {
+            queue.add(new QueueEntry(env.distance((Envelope) boundable.getBounds()), entryCount++, boundable));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!queue.isEmpty() && queue.peek().boundable instanceof AbstractNode) {
+                for (Object child : ((AbstractNode) queue.poll().boundable).getChildBoundables()) {
+                    offer((Boundable) child);
+                }
+            }
+            return !queue.isEmpty();
+        }
+
+        @Override
+        public Feature next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return (Feature) ((ItemBoundable) queue.poll().boundable).getItem();
+        }
+    }
+
+    private static class QueueEntry implements Comparable<QueueEntry> {
+        final double distance;
+        //Insertion order, to break ties the same way on every run.
+        final long serial;
+        final Boundable boundable;
+
+        QueueEntry(double distance, long serial, Boundable boundable) {
+            this.distance = distance;
+            this.serial = serial;
+            this.boundable = boundable;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other) {
+            int result = Double.compare(distance, other.distance);
+            return result != 0 ? result : Long.compare(serial, other.serial);
+        }
+    }
+
     private void createIndex() {
         for (Feature f : this) {
             spatialIndex.insert(f.getGeometry().getEnvelopeInternal(), f);
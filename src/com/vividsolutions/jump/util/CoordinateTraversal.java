@@ -0,0 +1,222 @@
+package com.vividsolutions.jump.util;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.util.Assert;
+
+/**
+ * Traversal of the lines and rings of a geometry without copying its
+ * coordinates. Visits the same CoordinateSequences, in the same order, as
+ * CoordinateArrays#toCoordinateArrays(Geometry, false) returns arrays, and
+ * gives the segments as primitive x/y values.
+ * <P>
+ * Class not part of the original JCS code.
+ */
+public class CoordinateTraversal {
+
+    /**
+     * Above this number of segment pairs, #haveCommonSegment sorts the
+     * segments instead of comparing every pair.
+     */
+    private static final int MAX_PAIRWISE_COMPARISONS = 1 << 14;
+
+    /**
+     * Receives each line and ring of a geometry.
+     */
+    public interface SequenceVisitor {
+        /**
+         * @param seq the coordinates of a line or ring, which must not be
+         * modified
+         * @return true to go on with the traversal, false to stop it
+         */
+        boolean visit(CoordinateSequence seq);
+    }
+
+    /**
+     * Receives each segment of a geometry.
+     */
+    public interface SegmentVisitor {
+        /**
+         * @param x0 the x-ordinate of the segment start
+         * @param y0 the y-ordinate of the segment start
+         * @param x1 the x-ordinate of the segment end
+         * @param y1 the y-ordinate of the segment end
+         */
+        void visit(double x0, double y0, double x1, double y1);
+    }
+
+    private CoordinateTraversal() {}
+
+    /**
+     * Visits the lines, polygon shells and polygon holes of g, in their stored
+     * orientation. Points and MultiPoints are not visited.
+     * @param g the Geometry to traverse
+     * @param visitor the visitor receiving each CoordinateSequence
+     * @return false if the visitor stopped the traversal
+     */
+    public static boolean visitSequences(Geometry g, SequenceVisitor visitor) {
+        if (g.getDimension() <= 0) {
+            return true;
+        } else if (g instanceof LineString) {
+            return visitor.visit(((LineString) g).getCoordinateSequence());
+        } else if (g instanceof Polygon) {
+            Polygon poly = (Polygon) g;
+            if (!visitor.visit(poly.getExteriorRing().getCoordinateSequence())) {
+                return false;
+            }
+            for (int i = 0; i < poly.getNumInteriorRing(); i++) {
+                if (!visitor.visit(poly.getInteriorRingN(i).getCoordinateSequence())) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (g instanceof GeometryCollection) {
+            for (int i = 0; i < g.getNumGeometries(); i++) {
+                if (!visitSequences(g.getGeometryN(i), visitor)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Assert.shouldNeverReachHere("Geometry of type " +
+            g.getClass().getName() + " not handled");
+        return false;
+    }
+
+    /**
+     * Visits the segments of the lines and rings of g.
+     * @param g the Geometry to traverse
+     * @param visitor the visitor receiving each segment
+     * @see #visitSequences(Geometry, SequenceVisitor)
+     */
+    public static void visitSegments(Geometry g, SegmentVisitor visitor) {
+        visitSequences(g, seq -> {
+            visitSegments(seq, visitor);
+            return true;
+        });
+    }
+
+    /**
+     * Visits the segments of a line or ring.
+     * @param seq the coordinates of the line or ring
+     * @param visitor the visitor receiving each segment
+     */
+    public static void visitSegments(CoordinateSequence seq, SegmentVisitor visitor) {
+        int n = seq.size();
+        if (n == 0) {
+            return;
+        }
+        double x0 = seq.getX(0);
+        double y0 = seq.getY(0);
+        for (int i = 1; i < n; i++) {
+            double x1 = seq.getX(i);
+            double y1 = seq.getY(i);
+            visitor.visit(x0, y0, x1, y1);
+            x0 = x1;
+            y0 = y1;
+        }
+    }
+
+    /**
+     * Returns whether a and b have a segment in common, in either direction.
+     * Only x and y are compared.
+     * @param a a Geometry
+     * @param b another Geometry
+     * @return true if a segment of a has the same end points as a segment of b
+     */
+    public static boolean haveCommonSegment(Geometry a, Geometry b) {
+        if ((long) segmentCount(a) * segmentCount(b) > MAX_PAIRWISE_COMPARISONS) {
+            return haveCommonSegmentSorted(a, b);
+        }
+        return !visitSequences(a, seqA -> {
+            Envelope envA = seqA.expandEnvelope(new Envelope());
+            return visitSequences(b, seqB -> !haveCommonSegment(seqA, envA, seqB));
+        });
+    }
+
+    /**
+     * Returns the number of segments visited by #visitSegments(Geometry,
+     * SegmentVisitor).
+     * @param g the Geometry to analyze
+     * @return the number of segments of g's lines and rings
+     */
+    public static int segmentCount(Geometry g) {
+        int[] count = new int[1];
+        visitSequences(g, seq -> {
+            count[0] += Math.max(0, seq.size() - 1);
+            return true;
+        });
+        return count[0];
+    }
+
+    private static boolean haveCommonSegment(CoordinateSequence seqA, Envelope envA,
+        CoordinateSequence seqB) {
+        for (int j = 1; j < seqB.size(); j++) {
+            double bx0 = seqB.getX(j - 1);
+            double by0 = seqB.getY(j - 1);
+            double bx1 = seqB.getX(j);
+            double by1 = seqB.getY(j);
+            //A common segment lies within the envelopes of both lines.
+            if (!envA.contains(bx0, by0) || !envA.contains(bx1, by1)) {
+                continue;
+            }
+            for (int i = 1; i < seqA.size(); i++) {
+                double ax0 = seqA.getX(i - 1);
+                double ay0 = seqA.getY(i - 1);
+                double ax1 = seqA.getX(i);
+                double ay1 = seqA.getY(i);
+                if ((ax0 == bx0 && ay0 == by0 && ax1 == bx1 && ay1 == by1)
+                    || (ax0 == bx1 && ay0 == by1 && ax1 == bx0 && ay1 == by0)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean haveCommonSegmentSorted(Geometry a, Geometry b) {
+        Set<Edge> aEdges = new TreeSet<>();
+        visitSequences(a, seq -> {
+            for (int i = 1; i < seq.size(); i++) {
+                aEdges.add(new Edge(seq.getCoordinate(i), seq.getCoordinate(i - 1)));
+            }
+            return true;
+        });
+        return !visitSequences(b, seq -> {
+            for (int i = 1; i < seq.size(); i++) {
+                if (aEdges.contains(new Edge(seq.getCoordinate(i), seq.getCoordinate(i - 1)))) {
+                    return false;
+                }
+            }
+            return true;
+        });
+    }
+
+    private static class Edge implements Comparable<Edge> {
+        private Coordinate p0, p1;
+        public Edge(Coordinate a, Coordinate b) {
+            if (a.compareTo(b) < 1) {
+                p0 = a;
+                p1 = b;
+            } else {
+                p0 = b;
+                p1 = a;
+            }
+        }
+        @Override
+        public int compareTo(Edge other) {
+            int result = p0.compareTo(other.p0);
+            if (result != 0)
+                return result;
+            return p1.compareTo(other.p1);
+        }
+    }
+}
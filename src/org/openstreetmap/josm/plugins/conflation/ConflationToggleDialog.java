@@ -37,6 +37,7 @@ import javax.swing.JTabbedPane;
 import javax.swing.JTable;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import javax.swing.event.ListDataEvent;
@@ -1125,10 +1126,24 @@ implements SelectionChangedListener, DataSetListener, SimpleMatchListListener, L
         // Do nothing
     }
 
+    /**
+     * Delay between two transfers of streamed matches to the dialog lists, in milliseconds.
+     */
+    private static final int STREAMING_FLUSH_INTERVAL = 250;
+
+    /**
+     * Maximum number of streamed items transferred to the dialog lists at a time.
+     */
+    private static final int STREAMING_FLUSH_MAX_ITEMS = 500;
+
     /**
      * Launch the matching computation in a PleaseWaitRunnable window.
      */
     private void performMatching() {
+        if (settings.isStreamingMatches) {
+            performStreamingMatching();
+            return;
+        }
         Main.worker.submit(new PleaseWaitRunnable(tr("Generating matches")) {
 
             private SimpleMatchList computedMatches;
@@ -1161,6 +1176,43 @@ implements SelectionChangedListener, DataSetListener, SimpleMatchListListener, L
         });
     }
 
+    /**
+     * Launch the matching computation in a PleaseWaitRunnable window, showing the matches
+     * region by region while they are computed.
+     * The matches already shown are kept if the computation is cancelled.
+     */
+    private void performStreamingMatching() {
+        setListsContentAddListnersAndLayer(new SimpleMatchList(), new ArrayList<>(), new ArrayList<>());
+        MatchesStagingBuffer buffer = new MatchesStagingBuffer();
+        Timer flushTimer = new Timer(STREAMING_FLUSH_INTERVAL,
+                e -> buffer.flush(matches, referenceOnlyListModel, STREAMING_FLUSH_MAX_ITEMS));
+        flushTimer.start();
+        Main.worker.submit(new PleaseWaitRunnable(tr("Generating matches")) {
+
+            @Override
+            protected void realRun() throws SAXException, IOException, OsmTransferException {
+                MatchesComputation.generateMatches(settings, getProgressMonitor(), buffer::add);
+            }
+
+            @Override
+            protected void finish() {
+                flushTimer.stop();
+                buffer.flush(matches, referenceOnlyListModel, -1);
+                // the reference objects of the regions not computed if cancelled, and all the unmatched subject objects
+                List<OsmPrimitive> referenceRemaining = settings.referenceSelection.stream().filter(
+                        r -> !matches.hasMatchForReference(r) && referenceOnlyListModel.indexOf(r) < 0)
+                        .collect(Collectors.toList());
+                referenceOnlyListModel.addAll(referenceRemaining);
+                subjectOnlyListModel.addAll(settings.subjectSelection.stream().filter(
+                        s -> !matches.hasMatchForSubject(s)).collect(Collectors.toList()));
+                updateTabTitles();
+            }
+
+            @Override
+            protected void cancel() {}
+        });
+    }
+
     class UnmatchedListDataListener implements ListDataListener {
 
         @Override
@@ -4,30 +4,54 @@ package org.openstreetmap.josm.plugins.conflation;
 
 import static org.openstreetmap.josm.tools.I18n.tr;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.plugins.jts.JTSConverter;
 
+import com.vividsolutions.jcs.conflate.polygonmatch.BasicFCMatchFinder;
+import com.vividsolutions.jcs.conflate.polygonmatch.DisambiguatingFCMatchFinder;
 import com.vividsolutions.jcs.conflate.polygonmatch.FCMatchFinder;
+import com.vividsolutions.jcs.conflate.polygonmatch.MatcherUtil;
 import com.vividsolutions.jcs.conflate.polygonmatch.Matches;
+import com.vividsolutions.jcs.conflate.polygonmatch.OneToOneFCMatchFinder;
+import com.vividsolutions.jcs.conflate.polygonmatch.OptimalFCMatchFinder;
+import com.vividsolutions.jcs.conflate.polygonmatch.TiledFCMatchFinder;
+import com.vividsolutions.jcs.conflate.polygonmatch.TopMatchDisambiguatingFCMatchFinder;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jump.feature.AttributeType;
 import com.vividsolutions.jump.feature.Feature;
 import com.vividsolutions.jump.feature.FeatureCollection;
 import com.vividsolutions.jump.feature.FeatureDataset;
 import com.vividsolutions.jump.feature.FeatureSchema;
 import com.vividsolutions.jump.feature.IndexedFeatureCollection;
+import com.vividsolutions.jump.geom.EnvelopeUtil;
 import com.vividsolutions.jump.task.TaskMonitor;
 
 public final class MatchesComputation {
 
+    /**
+     * Width and height of the regions matched one after the other in streaming mode, in map units.
+     */
+    private static final double STREAMING_REGION_SIZE = 1000.0;
+
     private MatchesComputation() {}
 
     /**
@@ -38,28 +62,9 @@ public final class MatchesComputation {
      */
     public static Collection<SimpleMatch> generateMatches(SimpleMatchSettings settings, ProgressMonitor monitor) {
         monitor.subTask("Generating matches");
-
-        // create Features and collections from primitive selections
-        HashSet<OsmPrimitive> allPrimitives = new HashSet<>();
-        HashSet<OsmPrimitive> refPrimitives = new HashSet<>(settings.referenceSelection);
-        HashSet<OsmPrimitive> subPrimitives = new HashSet<>(settings.subjectSelection);
-        allPrimitives.addAll(refPrimitives);
-        allPrimitives.addAll(subPrimitives);
-        FeatureCollection allFeatures = createFeatureCollection(allPrimitives);
-
-        FeatureCollection refColl = new FeatureDataset(allFeatures.getFeatureSchema());
-        FeatureCollection subColl = new FeatureDataset(allFeatures.getFeatureSchema());
-        for (Feature f : allFeatures.getFeatures()) {
-            OsmFeature osmFeature = (OsmFeature) f;
-            if (refPrimitives.contains(osmFeature.getPrimitive()))
-                refColl.add(osmFeature);
-            if (subPrimitives.contains(osmFeature.getPrimitive()))
-                subColl.add(osmFeature);
-        }
-
-        // Index the collection for efficient search with WindowMatcher
-        refColl = new IndexedFeatureCollection(refColl);
-        subColl = new IndexedFeatureCollection(subColl);
+        FeatureCollection[] collections = createReferenceAndSubjectCollections(settings);
+        FeatureCollection refColl = collections[0];
+        FeatureCollection subColl = collections[1];
 
         //TODO: pass to MatchFinderPanel to use as hint/default for DistanceMatchers
         // get maximum possible distance so scores can be scaled (FIXME: not quite accurate)
@@ -82,17 +87,164 @@ public final class MatchesComputation {
         monitor.subTask("Finishing");
 
         // convert to simple one-to-one match
+        return toSimpleMatches(map);
+    }
+
+    /**
+     * Generates the matches region by region, and hands each batch of final matches to the
+     * given consumer as soon as it is known, so that it can be reviewed while the following
+     * regions are still being computed.
+     *
+     * The reference objects are split into square regions, matched one after the other against
+     * the subject objects within the search distance around them, as done by
+     * {@link TiledFCMatchFinder}. A one-to-one match finder may let a match depend on every
+     * match sharing a subject with it, and so on: the matches are thus only resolved one-to-one
+     * once such a group of matches is complete, i.e. once all the reference objects within the
+     * search distance of its subjects have been matched. The matches handed to the consumer are
+     * thus the same as those of {@link #generateMatches(SimpleMatchSettings, ProgressMonitor)}.
+     *
+     * This requires the match finder to be a 'Basic' (or 'Tiled') finder with a bounded search
+     * distance, possibly wrapped by one of the one-to-one finders. Any other match finder is
+     * run on the whole data, and its matches are handed to the consumer at the end.
+     *
+     * @param settings the setting to use: list of objects to match, the match finder to use...
+     * @param monitor progress monitor for report
+     * @param regionConsumer called from the computing thread with each batch of final matches,
+     * and the reference objects found to be left unmatched
+     * @return the list of match found
+     */
+    public static Collection<SimpleMatch> generateMatches(SimpleMatchSettings settings, ProgressMonitor monitor,
+            BiConsumer<Collection<SimpleMatch>, Collection<OsmPrimitive>> regionConsumer) {
+        monitor.subTask("Generating matches");
+        FeatureCollection[] collections = createReferenceAndSubjectCollections(settings);
+        FeatureCollection refColl = collections[0];
+        FeatureCollection subColl = collections[1];
+        TaskMonitorJosmAdapter taskMonitor = new TaskMonitorJosmAdapter(monitor);
+        ArrayList<SimpleMatch> list = new ArrayList<>();
+        StreamingFinder streamingFinder = StreamingFinder.of(settings.matchFinder);
+        if (streamingFinder == null) {
+            Map<Feature, Matches> map = settings.matchFinder.match(refColl, subColl, taskMonitor);
+            if (!monitor.isCanceled()) {
+                publish(map, refColl.getFeatures(), regionConsumer, list);
+            }
+            return list;
+        }
+        PendingMatches pending = new PendingMatches(refColl, subColl, streamingFinder);
+        List<FeatureCollection> regions = splitIntoRegions(refColl);
+        for (int i = 0; i < regions.size() && !monitor.isCanceled(); i++) {
+            monitor.setExtraText(tr("region {0} of {1}", i + 1, regions.size()));
+            FeatureCollection region = regions.get(i);
+            FeatureDataset candidates = new FeatureDataset(subColl.getFeatureSchema());
+            candidates.addAll(subColl.query(EnvelopeUtil.expand(region.getEnvelope(), streamingFinder.halo)));
+            Map<Feature, Matches> map = streamingFinder.baseFinder.match(
+                    region, new IndexedFeatureCollection(candidates), taskMonitor);
+            if (monitor.isCanceled()) {
+                break;
+            }
+            pending.add(region, map);
+            Map<Feature, Matches> finalMap = pending.removeFinal(taskMonitor);
+            if (monitor.isCanceled()) {
+                break;
+            }
+            publish(finalMap, pending.takeFinalTargets(), regionConsumer, list);
+        }
+        monitor.setExtraText("");
+        return list;
+    }
+
+    /**
+     * Hands final matches to the consumer, and adds them to the list.
+     * @param map the final matches
+     * @param targets the reference features whose result is final, with or without a match
+     */
+    private static void publish(Map<Feature, Matches> map, Collection<Feature> targets,
+            BiConsumer<Collection<SimpleMatch>, Collection<OsmPrimitive>> regionConsumer, List<SimpleMatch> list) {
+        Collection<SimpleMatch> matches = toSimpleMatches(map);
+        if (matches.isEmpty() && targets.isEmpty()) {
+            return;
+        }
+        Set<OsmPrimitive> matchedReferences = matches.stream()
+                .map(SimpleMatch::getReferenceObject).collect(Collectors.toSet());
+        Collection<OsmPrimitive> unmatchedReferences = targets.stream()
+                .map(f -> ((OsmFeature) f).getPrimitive())
+                .filter(p -> !matchedReferences.contains(p))
+                .collect(Collectors.toList());
+        regionConsumer.accept(matches, unmatchedReferences);
+        list.addAll(matches);
+    }
+
+    /**
+     * Converts the result of a match finder to simple one-to-one matches.
+     * @param map the match finder result
+     */
+    private static Collection<SimpleMatch> toSimpleMatches(Map<Feature, Matches> map) {
         ArrayList<SimpleMatch> list = new ArrayList<>();
         for (Map.Entry<Feature, Matches> entry: map.entrySet()) {
             OsmFeature target = (OsmFeature) entry.getKey();
             OsmFeature subject = (OsmFeature) entry.getValue().getTopMatch();
-            if (target != null && subject != null)
+            if (target != null && subject != null) {
                 list.add(new SimpleMatch(target.getPrimitive(), subject.getPrimitive(),
                         entry.getValue().getTopScore()));
+            }
         }
         return list;
     }
 
+    /**
+     * Splits the features into square regions, ordered row by row.
+     * Each feature belongs to the region containing the centre of its envelope.
+     */
+    private static List<FeatureCollection> splitIntoRegions(FeatureCollection fc) {
+        Envelope extent = fc.getEnvelope();
+        TreeMap<Long, FeatureDataset> regionMap = new TreeMap<>();
+        int columns = Math.max(1, (int) Math.ceil(extent.getWidth() / STREAMING_REGION_SIZE));
+        for (Feature f : fc) {
+            Coordinate centre = f.getGeometry().getEnvelopeInternal().centre();
+            long column = 0;
+            long row = 0;
+            if (centre != null) {
+                column = Math.min(columns - 1, (long) ((centre.x - extent.getMinX()) / STREAMING_REGION_SIZE));
+                row = (long) ((centre.y - extent.getMinY()) / STREAMING_REGION_SIZE);
+            }
+            regionMap.computeIfAbsent(row * columns + column, k -> new FeatureDataset(fc.getFeatureSchema())).add(f);
+        }
+        List<FeatureCollection> regions = new ArrayList<>();
+        for (FeatureDataset region : regionMap.values()) {
+            regions.add(new IndexedFeatureCollection(region));
+        }
+        return regions;
+    }
+
+    /**
+     * Creates the indexed reference and subject feature collections from the selections.
+     * @return an array of two collections: reference then subject
+     */
+    private static FeatureCollection[] createReferenceAndSubjectCollections(SimpleMatchSettings settings) {
+        // create Features and collections from primitive selections, in selection order: the
+        // features are ordered by creation, which gives the order of the results
+        Set<OsmPrimitive> allPrimitives = new LinkedHashSet<>();
+        HashSet<OsmPrimitive> refPrimitives = new HashSet<>(settings.referenceSelection);
+        HashSet<OsmPrimitive> subPrimitives = new HashSet<>(settings.subjectSelection);
+        allPrimitives.addAll(settings.referenceSelection);
+        allPrimitives.addAll(settings.subjectSelection);
+        FeatureCollection allFeatures = createFeatureCollection(allPrimitives);
+
+        FeatureCollection refColl = new FeatureDataset(allFeatures.getFeatureSchema());
+        FeatureCollection subColl = new FeatureDataset(allFeatures.getFeatureSchema());
+        for (Feature f : allFeatures.getFeatures()) {
+            OsmFeature osmFeature = (OsmFeature) f;
+            if (refPrimitives.contains(osmFeature.getPrimitive()))
+                refColl.add(osmFeature);
+            if (subPrimitives.contains(osmFeature.getPrimitive()))
+                subColl.add(osmFeature);
+        }
+
+        // Index the collection for efficient search with WindowMatcher
+        refColl = new IndexedFeatureCollection(refColl);
+        subColl = new IndexedFeatureCollection(subColl);
+        return new FeatureCollection[] {refColl, subColl};
+    }
+
     /**
      * Create FeatureSchema using union of all keys from all selected primitives
      */
@@ -121,6 +273,221 @@ public final class MatchesComputation {
         return dataset;
     }
 
+    /**
+     * A match finder split into a finder computing the matches of each reference feature
+     * independently, and the one-to-one finder (if any) resolving them.
+     */
+    private static final class StreamingFinder {
+
+        /** The finder computing the matches of each reference feature on its own. */
+        final FCMatchFinder baseFinder;
+        /** Creates the one-to-one finder around a given finder, null if the matches are not resolved. */
+        final Function<FCMatchFinder, FCMatchFinder> oneToOneFinder;
+        /** Distance beyond which a subject cannot match a reference feature. */
+        final double halo;
+
+        private StreamingFinder(FCMatchFinder baseFinder, Function<FCMatchFinder, FCMatchFinder> oneToOneFinder,
+                double halo) {
+            this.baseFinder = baseFinder;
+            this.oneToOneFinder = oneToOneFinder;
+            this.halo = halo;
+        }
+
+        /**
+         * @return the parts of the match finder, or null if its result cannot be computed region by region
+         */
+        static StreamingFinder of(FCMatchFinder finder) {
+            FCMatchFinder baseFinder = finder;
+            Function<FCMatchFinder, FCMatchFinder> oneToOneFinder = null;
+            if (finder instanceof DisambiguatingFCMatchFinder) {
+                baseFinder = ((DisambiguatingFCMatchFinder) finder).getMatchFinder();
+                oneToOneFinder = DisambiguatingFCMatchFinder::new;
+            } else if (finder instanceof OneToOneFCMatchFinder) {
+                baseFinder = ((OneToOneFCMatchFinder) finder).getMatchFinder();
+                oneToOneFinder = OneToOneFCMatchFinder::new;
+            } else if (finder instanceof TopMatchDisambiguatingFCMatchFinder) {
+                baseFinder = ((TopMatchDisambiguatingFCMatchFinder) finder).getMatchFinder();
+                oneToOneFinder = TopMatchDisambiguatingFCMatchFinder::new;
+            } else if (finder instanceof OptimalFCMatchFinder) {
+                baseFinder = ((OptimalFCMatchFinder) finder).getMatchFinder();
+                oneToOneFinder = OptimalFCMatchFinder::new;
+            }
+            FCMatchFinder basicFinder = baseFinder;
+            if (basicFinder instanceof TiledFCMatchFinder) {
+                basicFinder = ((TiledFCMatchFinder) basicFinder).getMatchFinder();
+            }
+            if (!(basicFinder instanceof BasicFCMatchFinder)) {
+                return null;
+            }
+            double halo = MatcherUtil.searchDistance(((BasicFCMatchFinder) basicFinder).getMatcher());
+            if (Double.isInfinite(halo)) {
+                return null;
+            }
+            return new StreamingFinder(baseFinder, oneToOneFinder, halo);
+        }
+    }
+
+    /**
+     * The matches of the regions already computed, not yet resolved one-to-one.
+     *
+     * A group of matches sharing subjects grows when a reference feature of a later region
+     * matches one of its subjects. A group is thus final when no reference feature left to
+     * compute is within the halo of any of its subjects. Only the groups which grew, or
+     * whose subjects may have become settled, are checked again after each region.
+     */
+    private static final class PendingMatches {
+
+        private final FeatureCollection refColl;
+        private final FeatureCollection subColl;
+        private final StreamingFinder streamingFinder;
+        /** Reference features of the regions already computed. */
+        private final Set<Feature> computedReferences = new HashSet<>();
+        /** Subjects out of reach of the reference features not matched yet. */
+        private final Set<Feature> settledSubjects = new HashSet<>();
+        private final Map<Feature, Matches> pending = new TreeMap<>();
+        /** Pending reference features matching each subject, when the matches are resolved. */
+        private final Map<Feature, List<Feature>> subjectTargets = new HashMap<>();
+        /** Pending reference features whose group must be checked again by removeFinal. */
+        private final Set<Feature> touchedTargets = new TreeSet<>();
+        /** Reference features whose result became final since the last call to takeFinalTargets. */
+        private final List<Feature> finalTargets = new ArrayList<>();
+
+        PendingMatches(FeatureCollection refColl, FeatureCollection subColl, StreamingFinder streamingFinder) {
+            this.refColl = refColl;
+            this.subColl = subColl;
+            this.streamingFinder = streamingFinder;
+        }
+
+        /**
+         * Adds the matches of a region.
+         */
+        void add(FeatureCollection region, Map<Feature, Matches> map) {
+            for (Feature target : region.getFeatures()) {
+                computedReferences.add(target);
+                Matches matches = map.get(target);
+                if (matches == null || matches.isEmpty()) {
+                    finalTargets.add(target);
+                } else {
+                    pending.put(target, matches);
+                    if (streamingFinder.oneToOneFinder != null) {
+                        touchedTargets.add(target);
+                        for (int i = 0; i < matches.size(); i++) {
+                            subjectTargets.computeIfAbsent(matches.getFeature(i), k -> new ArrayList<>()).add(target);
+                        }
+                    }
+                }
+            }
+            if (streamingFinder.oneToOneFinder != null) {
+                // only the subjects within the halo of the region may have become settled
+                for (Feature subject : subColl.query(EnvelopeUtil.expand(region.getEnvelope(), streamingFinder.halo))) {
+                    List<Feature> targets = subjectTargets.get(subject);
+                    if (targets != null) {
+                        touchedTargets.addAll(targets);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Removes the reference features whose result became final since the last call,
+         * with or without a match.
+         * @return the reference features whose result is final
+         */
+        List<Feature> takeFinalTargets() {
+            List<Feature> targets = new ArrayList<>(finalTargets);
+            finalTargets.clear();
+            return targets;
+        }
+
+        /**
+         * Removes the groups of matches that are final, and resolves them one-to-one.
+         * @return the final matches
+         */
+        Map<Feature, Matches> removeFinal(TaskMonitor monitor) {
+            if (streamingFinder.oneToOneFinder == null) {
+                Map<Feature, Matches> finalMap = new TreeMap<>(pending);
+                finalTargets.addAll(pending.keySet());
+                pending.clear();
+                return finalMap;
+            }
+            Map<Feature, Matches> finalMap = new TreeMap<>();
+            Set<Feature> visited = new HashSet<>();
+            for (Feature start : touchedTargets) {
+                if (visited.contains(start)) {
+                    continue;
+                }
+                Map<Feature, Matches> group = new TreeMap<>();
+                Set<Feature> subjects = new LinkedHashSet<>();
+                Deque<Feature> queue = new ArrayDeque<>();
+                visited.add(start);
+                queue.add(start);
+                while (!queue.isEmpty()) {
+                    Feature target = queue.poll();
+                    Matches matches = pending.get(target);
+                    group.put(target, matches);
+                    for (int i = 0; i < matches.size(); i++) {
+                        Feature subject = matches.getFeature(i);
+                        if (subjects.add(subject)) {
+                            for (Feature other : subjectTargets.get(subject)) {
+                                if (visited.add(other)) {
+                                    queue.add(other);
+                                }
+                            }
+                        }
+                    }
+                }
+                if (subjects.stream().allMatch(this::isSettled)) {
+                    finalMap.putAll(resolve(group, subjects, monitor));
+                    finalTargets.addAll(group.keySet());
+                    pending.keySet().removeAll(group.keySet());
+                    subjectTargets.keySet().removeAll(subjects);
+                }
+            }
+            touchedTargets.clear();
+            return finalMap;
+        }
+
+        /**
+         * @return whether no reference feature left to match is within the halo of the subject
+         */
+        private boolean isSettled(Feature subject) {
+            if (settledSubjects.contains(subject)) {
+                return true;
+            }
+            Envelope envelope = subject.getGeometry().getEnvelopeInternal();
+            if (!envelope.isNull()) {
+                for (Feature target : refColl.query(EnvelopeUtil.expand(envelope, streamingFinder.halo))) {
+                    if (!computedReferences.contains(target)) {
+                        return false;
+                    }
+                }
+            }
+            settledSubjects.add(subject);
+            return true;
+        }
+
+        /**
+         * Runs the one-to-one finder on a complete group of matches.
+         */
+        private Map<Feature, Matches> resolve(Map<Feature, Matches> group, Collection<Feature> subjects,
+                TaskMonitor monitor) {
+            FeatureDataset targets = new FeatureDataset(refColl.getFeatureSchema());
+            targets.addAll(group.keySet());
+            FeatureDataset candidates = new FeatureDataset(refColl.getFeatureSchema());
+            candidates.addAll(subjects);
+            FCMatchFinder groupFinder = (targetFC, candidateFC, m) -> group;
+            Map<Feature, Matches> resolved = streamingFinder.oneToOneFinder.apply(groupFinder)
+                    .match(targets, candidates, monitor);
+            Map<Feature, Matches> map = new TreeMap<>();
+            for (Map.Entry<Feature, Matches> entry : resolved.entrySet()) {
+                if (!entry.getValue().isEmpty()) {
+                    map.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return map;
+        }
+    }
+
     /**
      * Progress monitor for use with JCS linked to a JOSM ProgressMonitor.
      */
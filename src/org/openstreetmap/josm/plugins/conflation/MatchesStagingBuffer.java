@@ -0,0 +1,73 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.conflation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Buffer between the thread computing the matches and the Event Dispatch Thread.
+ *
+ * Matches and unmatched reference objects are added by the computing thread as soon
+ * as they are found, and moved to the dialog lists by the EDT, a bounded number at a
+ * time so that the user interface stays responsive.
+ */
+public class MatchesStagingBuffer {
+
+    private final Queue<SimpleMatch> matches = new ConcurrentLinkedQueue<>();
+    private final Queue<OsmPrimitive> referenceOnly = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Adds a batch of results. Can be called from any thread.
+     * @param newMatches the matches found
+     * @param newReferenceOnly the reference objects left without match
+     */
+    public void add(Collection<SimpleMatch> newMatches, Collection<OsmPrimitive> newReferenceOnly) {
+        matches.addAll(newMatches);
+        referenceOnly.addAll(newReferenceOnly);
+    }
+
+    /**
+     * Moves the buffered results to the given lists. Must be called from the EDT.
+     * @param matchList the list receiving the matches
+     * @param referenceOnlyModel the list receiving the unmatched reference objects
+     * @param maxItems the maximum number of items to move, or a negative number to move all of them
+     * @return true if the buffer is empty after the call
+     */
+    public boolean flush(SimpleMatchList matchList, UnmatchedObjectListModel referenceOnlyModel, int maxItems) {
+        int remaining = maxItems < 0 ? Integer.MAX_VALUE : maxItems;
+        List<SimpleMatch> matchBatch = new ArrayList<>();
+        SimpleMatch match;
+        while (remaining > 0 && (match = matches.poll()) != null) {
+            matchBatch.add(match);
+            remaining--;
+        }
+        List<OsmPrimitive> referenceBatch = new ArrayList<>();
+        OsmPrimitive reference;
+        while (remaining > 0 && (reference = referenceOnly.poll()) != null) {
+            referenceBatch.add(reference);
+            remaining--;
+        }
+        if (!matchBatch.isEmpty()) {
+            matchList.beginUpdate();
+            try {
+                matchList.addAll(matchBatch);
+            } finally {
+                matchList.endUpdate();
+            }
+        }
+        if (!referenceBatch.isEmpty()) {
+            referenceOnlyModel.beginUpdate();
+            try {
+                referenceOnlyModel.addAll(referenceBatch);
+            } finally {
+                referenceOnlyModel.endUpdate();
+            }
+        }
+        return matches.isEmpty() && referenceOnly.isEmpty();
+    }
+}
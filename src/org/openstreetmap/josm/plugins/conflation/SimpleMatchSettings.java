@@ -33,6 +33,11 @@ public class SimpleMatchSettings {
      */
     public boolean isReplacingGeometry;
 
+    /**
+     * If matches should be shown region by region while they are computed.
+     */
+    public boolean isStreamingMatches;
+
     /**
      * List of tags to merge during conflation.
      * Should be set to the {@link All} constant to mean all tags.
@@ -12,6 +12,7 @@ import java.awt.event.ActionListener;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.ButtonGroup;
+import javax.swing.JCheckBox;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
 
@@ -30,6 +31,7 @@ public class MatchingPanel extends JPanel {
     private AdvancedMatchFinderPanel advancedMatchFinderPanel;
     private ProgrammingMatchFinderPanel programmingMatchFinderPanel;
     private Box selectedMatchFinderBox;
+    private JCheckBox streamMatchesCheckBox;
     private AutoCompletionList referenceTagsAutoCompletionList;
     private Runnable pack;
     
@@ -95,10 +97,16 @@ public class MatchingPanel extends JPanel {
         advancedRadioButton.addActionListener(modeChangedLiseter);
         programmimgRadioButton.addActionListener(modeChangedLiseter);
 
+        streamMatchesCheckBox = new JCheckBox(tr("Show matches while they are computed"));
+        streamMatchesCheckBox.setFont(SettingsDialog.plainLabelFont);
+        streamMatchesCheckBox.setToolTipText(tr("Matches are computed region by region and can be reviewed as soon as "
+                + "no later region can change them. The matches found are the same."));
+
         Box box = Box.createVerticalBox();
         box.add(complexitySelectionBox);
         box.add(Box.createRigidArea(new Dimension(1, 5)));
         box.add(selectedMatchFinderBox);
+        box.add(streamMatchesCheckBox);
         this.add(box, BorderLayout.CENTER);
     }
 
@@ -112,6 +120,7 @@ public class MatchingPanel extends JPanel {
         if (programmingMatchFinderPanel != null) {
             programmingMatchFinderPanel.savePreferences(pref);
         }
+        pref.put(getClass().getName() + ".streamMatchesCheckBox", streamMatchesCheckBox.isSelected());
     }
     
     public void restoreFromPreferences(Preferences pref) {
@@ -120,10 +129,12 @@ public class MatchingPanel extends JPanel {
         if (programmingMatchFinderPanel != null) {
             programmingMatchFinderPanel.restoreFromPreferences(pref);
         }
+        streamMatchesCheckBox.setSelected(pref.getBoolean(getClass().getName() + ".streamMatchesCheckBox", false));
     }
     
     public void fillSettings(SimpleMatchSettings settings) {
         settings.matchFinder = getSelectedMatchFinderPanel().getMatchFinder();
+        settings.isStreamingMatches = streamMatchesCheckBox.isSelected();
     }
     
 }
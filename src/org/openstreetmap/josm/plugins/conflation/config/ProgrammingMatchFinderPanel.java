@@ -212,6 +212,14 @@ public final class ProgrammingMatchFinderPanel extends MatchFinderPanel {
                     "MinScore",
                     "Filters out shapes with a score below a given value.",
                     new String[] {"minimun score"}),
+            new InstanceConstructor(
+                    com.vividsolutions.jcs.conflate.polygonmatch.NearestCandidatesMatcher.class,
+                    "Nearest",
+                    "Keeps the k candidates nearest to the target according to a distance matcher "
+                    + "(e.g. 'CentroidDistance'), scored by that matcher. Uses the spatial index to "
+                    + "only compare the target to the nearest candidates, so it should come first, "
+                    + "without a 'Window' in front of it.",
+                    new String[] {"number of nearest candidates to keep", "distance matcher"}),
             new InstanceConstructor(
                     com.vividsolutions.jcs.conflate.polygonmatch.OneToOneFCMatchFinder.class,
                     "OneToOne",
@@ -227,11 +235,27 @@ public final class ProgrammingMatchFinderPanel extends MatchFinderPanel {
                     + "out all matches except the top ones, for each feature, leaving:\n"
                     + "T2-C3 (1.0), T3-C4 (0.5).",
                     new String[] {"match finder"}),
+            new InstanceConstructor(
+                    com.vividsolutions.jcs.conflate.polygonmatch.OptimalFCMatchFinder.class,
+                    "Optimal",
+                    "Enforces a one-to-one relationship between target features and "
+                    + "matched candidate features, in the returned result set, keeping the "
+                    + "matches with the greatest total score.\n"
+                    + "Unlike 'Disambiguating', a target may give up its best candidate when "
+                    + "another target would lose more without it. Only matches with a positive "
+                    + "score are kept.",
+                    new String[] {"match finder"}),
             new InstanceConstructor(
                     com.vividsolutions.jcs.conflate.polygonmatch.OverlapMatcher.class,
                     "Overlap",
                     "",
                     new String[] {}),
+            new InstanceConstructor(
+                    com.vividsolutions.jcs.conflate.polygonmatch.BasicFCMatchFinder.class,
+                    "ParallelBasic",
+                    "Applies a FeatureMatcher to each item, spreading the items over several threads. "
+                    + "Gives the same result as 'Basic', faster on multi-core computers.",
+                    new String[] {"number of threads, 0 to use one thread per processor", "matcher"}),
             new InstanceConstructor(
                     com.vividsolutions.jcs.conflate.polygonmatch.ScaleScoresMatcher.class,
                     "ScaleScores",
@@ -273,6 +297,20 @@ public final class ProgrammingMatchFinderPanel extends MatchFinderPanel {
             //        com.vividsolutions.jcs.conflate.polygonmatch.ThresholdFilter.class,
             //        "Filters out shapes with a score below a given value.",
             //        new String[] {"minScore the score below which shapes will be filtered out"}),
+            new InstanceConstructor(
+                    com.vividsolutions.jcs.conflate.polygonmatch.TiledFCMatchFinder.class,
+                    "Tiled",
+                    "Splits the data into a grid of tiles, and runs the match finder on each tile "
+                    + "independently, several tiles at the same time. Each tile only holds its own targets "
+                    + "and the candidates within the search distance around them: the Window buffer or "
+                    + "maximum distance of the matcher, the smallest one over a Chain (every matcher "
+                    + "must pass) and the largest one over a Weighted matcher (any matcher may pass)."
+                    + "\n\n"
+                    + "The match finder should be 'Basic' with a Window or a maximum distance. If some "
+                    + "matcher of a Weighted matcher, or every matcher of a Chain, has no Window or maximum "
+                    + "distance, the data is not split and the match finder runs once on the whole data. "
+                    + "'Tiled' should itself be wrapped by the one-to-one finder (e.g. 'Disambiguating').",
+                    new String[] {"tile size", "number of threads, 0 to use one thread per processor", "match finder"}),
             new InstanceConstructor(
                     com.vividsolutions.jcs.conflate.polygonmatch.TopMatchDisambiguatingFCMatchFinder.class,
                     "TopMatchDisambiguating",
@@ -30,6 +30,7 @@ import com.vividsolutions.jcs.conflate.polygonmatch.FCMatchFinder;
 import com.vividsolutions.jcs.conflate.polygonmatch.FeatureMatcher;
 import com.vividsolutions.jcs.conflate.polygonmatch.HausdorffDistanceMatcher;
 import com.vividsolutions.jcs.conflate.polygonmatch.OneToOneFCMatchFinder;
+import com.vividsolutions.jcs.conflate.polygonmatch.OptimalFCMatchFinder;
 import com.vividsolutions.jcs.conflate.polygonmatch.WeightedMatcher;
 import com.vividsolutions.jcs.conflate.polygonmatch.WindowMatcher;
 import com.vividsolutions.jcs.plugin.conflate.polygonmatch.MyValidatingTextField;
@@ -39,7 +40,7 @@ public class SimpleMatchFinderPanel extends MatchFinderPanel {
     private static final double DEFAULT_DISTANCE_THRESHOLD = 30.0;
 
     private final JLabel methodLabel = new JLabel(tr("Method"));
-    private final String[] methodString = {tr("Disambiguating"), tr("One to One")};
+    private final String[] methodString = {tr("Disambiguating"), tr("One to One"), tr("Optimal")};
     private final JComboBox<String> methodCombeBox = new JComboBox<>(methodString);
     private final JLabel distanceLabel = new JLabel(tr("Distance"));
     private final String[] distanceStrings = {tr("Standard"), tr("Centroid"), tr("Hausdorff")};
@@ -125,8 +126,12 @@ public class SimpleMatchFinderPanel extends MatchFinderPanel {
         //matchers.add(new IdenticalFeatureFilter()); give strange results if activated
         ChainMatcher chain = new ChainMatcher(matchers.toArray(new FeatureMatcher[matchers.size()]));
         BasicFCMatchFinder basicFinder = new BasicFCMatchFinder(chain);
-        FCMatchFinder finder = (methodCombeBox.getSelectedIndex() == 0) ?
-                new DisambiguatingFCMatchFinder(basicFinder) : new OneToOneFCMatchFinder(basicFinder);
+        FCMatchFinder finder;
+        switch(methodCombeBox.getSelectedIndex()) {
+            case 1: finder = new OneToOneFCMatchFinder(basicFinder); break;
+            case 2: finder = new OptimalFCMatchFinder(basicFinder); break;
+            default: finder = new DisambiguatingFCMatchFinder(basicFinder); break;
+        }
         return finder;
     }
 
@@ -8,8 +8,9 @@ import org.apache.commons.jcs.access.exception.InvalidArgumentException;
 
 /**
  * Description of a class constructor.
- * Actually only the constructor with me largest number of arguments
- * is used.
+ * The public constructor having as many arguments as there are parameter
+ * descriptions is used, so the same class can be described several times
+ * under different names.
  */
 public class InstanceConstructor {
 
@@ -26,7 +27,7 @@ public class InstanceConstructor {
 
     /**
      * The constructor used.
-     * The constructor with me largest number of arguments is used.
+     * The constructor with as many arguments as parameter descriptions is used.
      */
     public final Constructor<?> constructor;
 
@@ -81,15 +82,14 @@ public class InstanceConstructor {
             String[] varArgsDescriptions) {
         this.type = type;
         this.name = (name != null) ? name : type.getSimpleName();
-        this.constructor = getLargestPublicConstructor(type);
+        this.constructor = getPublicConstructor(type, paramsDescriptipon.length);
         this.description = description;
         this.paramsDescriptipon = paramsDescriptipon;
         this.varrgsTypes = varArgsTypes;
         this.varArgsDescriptions = varArgsDescriptions;
         if (constructor == null)
-            throw new InvalidArgumentException("No Public constructor found");
-        if (constructor.getParameterCount() != paramsDescriptipon.length)
-            throw new InvalidArgumentException(type.getSimpleName() + " paramDescription.length is != " + constructor.getParameterCount());
+            throw new InvalidArgumentException(type.getSimpleName() + " has no public constructor with "
+                    + paramsDescriptipon.length + " parameters");
         if (varArgsTypes != null) {
             Class<?>[] paramTypes = constructor.getParameterTypes();
             assert (paramTypes[paramTypes.length -1].isArray());
@@ -98,16 +98,22 @@ public class InstanceConstructor {
     }
 
     /**
-     * Return the class' public constructor with the largest number of arguments.
+     * Return the class' public constructor with the given number of arguments.
+     * Class#getConstructors returns the constructors in no particular order,
+     * so a class having several public constructors with that number of
+     * arguments is rejected rather than bound to an arbitrary one.
      */
-    private Constructor<?> getLargestPublicConstructor(Class<?> type) {
-        Constructor<?> bestCnstr = null;
+    private Constructor<?> getPublicConstructor(Class<?> type, int parameterCount) {
+        Constructor<?> found = null;
         for (Constructor<?> cnstr : type.getConstructors()) {
             if (Modifier.isPublic(cnstr.getModifiers())
-                    && ((bestCnstr == null)
-                        || (cnstr.getParameterTypes().length > bestCnstr.getParameterTypes().length)))
-                bestCnstr = cnstr;
+                    && (cnstr.getParameterCount() == parameterCount)) {
+                if (found != null)
+                    throw new InvalidArgumentException(type.getSimpleName() + " has several public constructors with "
+                            + parameterCount + " parameters");
+                found = cnstr;
+            }
         }
-        return bestCnstr;
+        return found;
     }
 }
@@ -2,7 +2,12 @@
 package org.openstreetmap.josm.plugins.conflation.matcher;
 
 import com.vividsolutions.jcs.conflate.polygonmatch.AbstractDistanceMatcher;
+import com.vividsolutions.jcs.conflate.polygonmatch.Matches;
+import com.vividsolutions.jcs.conflate.polygonmatch.PreparedTarget;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
 
 /**
  * Compute the standard distance (i.e. the minimum) between two geometries.
@@ -21,4 +26,41 @@ public class StandardDistanceMatcher extends AbstractDistanceMatcher {
             return target.distance(candidate);
         }
 
+        /**
+         * The envelope distance is a lower bound of the distance, enough to
+         * discard candidates beyond the maximum distance.
+         */
+        @Override
+        protected double distance(Geometry target, Geometry candidate, double maxDistance) {
+            if (target.getEnvelopeInternal().distance(candidate.getEnvelopeInternal()) >= maxDistance) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return target.distance(candidate);
+        }
+
+        /**
+         * Indexes the target segments once for all the candidates. Candidates
+         * whose envelope is beyond the maximum distance are discarded without
+         * computing the distance.
+         */
+        @Override
+        public Matches match(Feature target, FeatureCollection candidates) {
+            Geometry targetGeometry = target.getGeometry();
+            Envelope targetEnvelope = targetGeometry.getEnvelopeInternal();
+            PreparedTarget prepared = new PreparedTarget(targetGeometry);
+            Matches matches = new Matches(candidates.getFeatureSchema());
+            for (Feature candidate : candidates) {
+                Geometry candidateGeometry = candidate.getGeometry();
+                if (maxDistance > 0
+                        && targetEnvelope.distance(candidateGeometry.getEnvelopeInternal()) >= maxDistance) {
+                    continue;
+                }
+                double score = score(prepared.distance(candidateGeometry), targetGeometry, candidateGeometry);
+                if (score > 0) {
+                    matches.add(candidate, score);
+                }
+            }
+            return matches;
+        }
+
 }
@@ -0,0 +1,205 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.conflation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+import org.openstreetmap.josm.plugins.conflation.matcher.AttributeMatcher;
+import org.openstreetmap.josm.plugins.conflation.matcher.LevenshteinDistanceValueMatcher;
+import org.openstreetmap.josm.plugins.conflation.matcher.OsmNormalizeRule;
+import org.openstreetmap.josm.plugins.conflation.matcher.StandardDistanceMatcher;
+
+import com.vividsolutions.jcs.conflate.polygonmatch.AngleHistogramMatcher;
+import com.vividsolutions.jcs.conflate.polygonmatch.CentroidAligner;
+import com.vividsolutions.jcs.conflate.polygonmatch.CentroidDistanceMatcher;
+import com.vividsolutions.jcs.conflate.polygonmatch.CompactnessMatcher;
+import com.vividsolutions.jcs.conflate.polygonmatch.FeatureMatcher;
+import com.vividsolutions.jcs.conflate.polygonmatch.HausdorffDistanceMatcher;
+import com.vividsolutions.jcs.conflate.polygonmatch.Matches;
+import com.vividsolutions.jcs.conflate.polygonmatch.SymDiffMatcher;
+import com.vividsolutions.jcs.conflate.polygonmatch.WeightedMatcher;
+import com.vividsolutions.jcs.conflate.polygonmatch.WindowFilter;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.util.Assert;
+import com.vividsolutions.jump.feature.AttributeType;
+import com.vividsolutions.jump.feature.BasicFeature;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.feature.FeatureDataset;
+import com.vividsolutions.jump.feature.FeatureSchema;
+import com.vividsolutions.jump.feature.IndexedFeatureCollection;
+
+/**
+ * Measures the throughput of {@link WeightedMatcher} on the 'Weighted' matcher of the advanced
+ * example expression of the programming match finder panel, against the original implementation,
+ * and checks that both give the same scores.
+ */
+public class WeightedMatcherPerformanceTest {
+
+    private static final int TARGETS = 2000;
+    private static final int CANDIDATES = 20000;
+    private static final double EXTENT = 3000;
+    private static final double WINDOW = 50;
+    private static final int ROUNDS = 5;
+    private static final String[] NAMES = {"", "", "Town Hall", "Town hall", "Main Street School",
+        "Main St. School", "\u00c9glise Saint-Pierre", "Eglise Saint Pierre", "Central Station"};
+
+    /**
+     * Weights and matchers of the 'Weighted' matcher of the advanced example.
+     */
+    private static Object[] advancedExampleMatchersAndWeights() {
+        return new Object[] {
+            10, new StandardDistanceMatcher(WINDOW),
+            10, new CentroidDistanceMatcher(WINDOW),
+            10, new CentroidAligner(new HausdorffDistanceMatcher(0)),
+            10, new SymDiffMatcher(),
+            10, new CentroidAligner(new SymDiffMatcher()),
+            10, new CompactnessMatcher(),
+            10, new AngleHistogramMatcher(18),
+            50, new AttributeMatcher("name", new LevenshteinDistanceValueMatcher(0), OsmNormalizeRule.get("name"))};
+    }
+
+    @Test
+    public void testAdvancedExampleWeightedMatcher() {
+        FeatureCollection targets = buildings(TARGETS, 1);
+        FeatureCollection candidates = buildings(CANDIDATES, 2);
+        WindowFilter window = new WindowFilter(WINDOW);
+        Object[] matchersAndWeights = advancedExampleMatchersAndWeights();
+        FeatureMatcher weighted = new WeightedMatcher(matchersAndWeights);
+        FeatureMatcher original = new OriginalWeightedMatcher(matchersAndWeights);
+        checkSameScores(original, weighted, window, targets, candidates);
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            long pairs = 0;
+            for (Feature target : targets) {
+                pairs += original.match(target, window.match(target, candidates)).size();
+            }
+            long middle = System.nanoTime();
+            for (Feature target : targets) {
+                weighted.match(target, window.match(target, candidates));
+            }
+            long end = System.nanoTime();
+            System.out.printf("Advanced example, round %d: %d pairs, original %d ms, WeightedMatcher %d ms%n",
+                    round, pairs, (middle - start) / 1000000, (end - middle) / 1000000);
+        }
+    }
+
+    private static void checkSameScores(FeatureMatcher original, FeatureMatcher weighted, WindowFilter window,
+            FeatureCollection targets, FeatureCollection candidates) {
+        for (Feature target : targets) {
+            Matches windowed = window.match(target, candidates);
+            Matches expected = original.match(target, windowed);
+            Matches actual = weighted.match(target, windowed);
+            Map<Feature, Double> expectedScores = new HashMap<>();
+            for (int i = 0; i < expected.size(); i++) {
+                expectedScores.put(expected.getFeature(i), expected.getScore(i));
+            }
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < actual.size(); i++) {
+                Double score = expectedScores.get(actual.getFeature(i));
+                assertNotNull(score);
+                // The matchers' scores are not summed in the same order.
+                assertEquals(score.doubleValue(), actual.getScore(i), 1e-12);
+            }
+        }
+    }
+
+    private static FeatureCollection buildings(int count, long seed) {
+        GeometryFactory factory = new GeometryFactory();
+        Random random = new Random(seed);
+        FeatureSchema schema = new FeatureSchema();
+        schema.addAttribute("GEOMETRY", AttributeType.GEOMETRY);
+        schema.addAttribute("name", AttributeType.STRING);
+        FeatureDataset dataset = new FeatureDataset(schema);
+        for (int i = 0; i < count; i++) {
+            double x = random.nextDouble() * EXTENT;
+            double y = random.nextDouble() * EXTENT;
+            double w = 5 + random.nextDouble() * 15;
+            double h = 5 + random.nextDouble() * 15;
+            Feature feature = new BasicFeature(schema);
+            feature.setGeometry(factory.createPolygon(new Coordinate[] {
+                    new Coordinate(x, y), new Coordinate(x + w, y), new Coordinate(x + w, y + h),
+                    new Coordinate(x, y + h), new Coordinate(x, y)}));
+            feature.setAttribute("name", NAMES[random.nextInt(NAMES.length)]);
+            dataset.add(feature);
+        }
+        return new IndexedFeatureCollection(dataset);
+    }
+
+    /**
+     * The WeightedMatcher of the original JCS code: a HashMap of Matches per matcher, a TreeMap
+     * of boxed scores and the weight total recomputed for every score.
+     * Features are ordered by geometry, as the original Feature#compareTo did.
+     */
+    private static class OriginalWeightedMatcher implements FeatureMatcher {
+
+        private final Map<FeatureMatcher, Double> matcherToWeightMap = new HashMap<>();
+
+        OriginalWeightedMatcher(Object[] matchersAndWeights) {
+            Assert.isTrue(matchersAndWeights.length % 2 == 0);
+            for (int i = 0; i < matchersAndWeights.length; i += 2) {
+                add((FeatureMatcher) matchersAndWeights[i+1],
+                        ((Number) matchersAndWeights[i]).doubleValue());
+            }
+        }
+
+        private void add(FeatureMatcher matcher, double weight) {
+            Assert.isTrue(weight >= 0);
+            if (weight == 0) {
+                return;
+            }
+            matcherToWeightMap.put(matcher, Double.valueOf(weight));
+        }
+
+        @Override
+        public Matches match(Feature target, FeatureCollection candidates) {
+            if (weightTotal() == 0) {
+                return new Matches(candidates.getFeatureSchema());
+            }
+            Map<FeatureMatcher, Matches> matcherToMatchesMap = new HashMap<>();
+            for (FeatureMatcher matcher : matcherToWeightMap.keySet()) {
+                if (normalizedWeight(matcher) == 0) {
+                    continue;
+                }
+                matcherToMatchesMap.put(matcher, matcher.match(target, candidates));
+            }
+            Map<Feature, Double> featureToScoreMap = new TreeMap<>(
+                    (a, b) -> a.getGeometry().compareTo(b.getGeometry()));
+            for (FeatureMatcher matcher : matcherToMatchesMap.keySet()) {
+                Matches matches = matcherToMatchesMap.get(matcher);
+                for (int i = 0; i < matches.size(); i++) {
+                    double score = matches.getScore(i) * normalizedWeight(matcher);
+                    Double oldScore = featureToScoreMap.get(matches.getFeature(i));
+                    if (oldScore == null) {
+                        oldScore = Double.valueOf(0);
+                    }
+                    featureToScoreMap.put(matches.getFeature(i), Double.valueOf(oldScore.doubleValue() + score));
+                }
+            }
+            Matches matches = new Matches(candidates.getFeatureSchema());
+            for (Feature feature : featureToScoreMap.keySet()) {
+                matches.add(feature, featureToScoreMap.get(feature).doubleValue());
+            }
+            return matches;
+        }
+
+        private double normalizedWeight(FeatureMatcher matcher) {
+            return matcherToWeightMap.get(matcher).doubleValue() / weightTotal();
+        }
+
+        private double weightTotal() {
+            double weightTotal = 0;
+            for (Double weight : matcherToWeightMap.values()) {
+                weightTotal += weight.doubleValue();
+            }
+            return weightTotal;
+        }
+    }
+}
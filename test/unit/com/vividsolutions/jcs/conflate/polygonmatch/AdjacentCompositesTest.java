@@ -0,0 +1,180 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.SCHEMA;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.feature;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.rectangle;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.feature.FeatureDataset;
+import com.vividsolutions.jump.feature.IndexedFeatureCollection;
+import com.vividsolutions.jump.util.CoordinateTraversal;
+
+/**
+ * Checks AdjacentComposites against a brute-force enumeration of the
+ * connected subsets, and the equality of the composites built from them.
+ */
+public class AdjacentCompositesTest {
+
+    private static final AdjacentComposites.Adjacency SHARE_EDGE =
+        (a, b) -> CoordinateTraversal.haveCommonSegment(a.getGeometry(), b.getGeometry());
+
+    @Test
+    public void testConnectedSetsOfRandomGrids() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 60; trial++) {
+            FeatureCollection fc = randomGrid(random, 2 + random.nextInt(4), 1 + random.nextInt(4));
+            int maxSize = random.nextInt(5);
+            List<List<Feature>> connectedSets = AdjacentComposites.connectedSets(
+                fc, maxSize, SHARE_EDGE, new WorkerMonitor(new AtomicBoolean()));
+            List<Feature> features = fc.getFeatures();
+            Set<Set<Feature>> found = new HashSet<>();
+            for (List<Feature> connectedSet : connectedSets) {
+                assertTrue("Produced twice: " + connectedSet, found.add(new HashSet<>(connectedSet)));
+                List<Integer> indices = new ArrayList<>();
+                for (Feature feature : connectedSet) {
+                    indices.add(Integer.valueOf(features.indexOf(feature)));
+                }
+                List<Integer> sorted = new ArrayList<>(indices);
+                Collections.sort(sorted);
+                assertEquals("Not in collection order", sorted, indices);
+            }
+            assertEquals(bruteForce(features, maxSize), found);
+        }
+    }
+
+    @Test
+    public void testChain() {
+        //A-B-C-D in a row: no feature is adjacent to all the others.
+        FeatureDataset row = new FeatureDataset(SCHEMA);
+        for (int i = 0; i < 4; i++) {
+            row.add(feature(square(i, 0)));
+        }
+        FeatureCollection fc = new IndexedFeatureCollection(row);
+        List<List<Feature>> connectedSets = AdjacentComposites.connectedSets(
+            fc, 4, SHARE_EDGE, new WorkerMonitor(new AtomicBoolean()));
+        //4 singles, 3 pairs, 2 triples and the whole row.
+        assertEquals(10, connectedSets.size());
+        List<Feature> features = fc.getFeatures();
+        assertTrue(connectedSets.contains(features));
+        assertFalse(connectedSets.contains(Arrays.asList(features.get(0), features.get(2))));
+    }
+
+    @Test
+    public void testCancelled() {
+        FeatureCollection fc = randomGrid(new Random(2), 4, 4);
+        assertTrue(AdjacentComposites.connectedSets(
+            fc, 3, SHARE_EDGE, new WorkerMonitor(new AtomicBoolean(true))).isEmpty());
+    }
+
+    @Test
+    public void testCompositeFeatureEquality() {
+        Feature a = feature(square(0, 0));
+        Feature b = feature(square(1, 0));
+        Feature c = feature(square(2, 0));
+        List<TargetUnioningFCMatchFinder.CompositeFeature> unioning = Arrays.asList(
+            new TargetUnioningFCMatchFinder.CompositeFeature(SCHEMA, Arrays.asList(a, b, c)),
+            new TargetUnioningFCMatchFinder.CompositeFeature(SCHEMA, Arrays.asList(c, a, b)),
+            new TargetUnioningFCMatchFinder.CompositeFeature(SCHEMA, Arrays.asList(a, b)));
+        assertEquals(unioning.get(0), unioning.get(1));
+        assertEquals(unioning.get(0).hashCode(), unioning.get(1).hashCode());
+        assertFalse(unioning.get(0).equals(unioning.get(2)));
+        assertEquals(2, new HashSet<>(unioning).size());
+
+        List<CombinatorialFCMatchFinder.CompositeFeature> combinatorial = Arrays.asList(
+            new CombinatorialFCMatchFinder.CompositeFeature(SCHEMA, Arrays.asList(b, c)),
+            new CombinatorialFCMatchFinder.CompositeFeature(SCHEMA, Arrays.asList(c, b)),
+            new CombinatorialFCMatchFinder.CompositeFeature(SCHEMA, Arrays.asList(a, c)));
+        assertEquals(combinatorial.get(0), combinatorial.get(1));
+        assertEquals(combinatorial.get(0).hashCode(), combinatorial.get(1).hashCode());
+        assertFalse(combinatorial.get(0).equals(combinatorial.get(2)));
+        assertEquals(2, new HashSet<>(combinatorial).size());
+    }
+
+    @Test
+    public void testCanonicalKey() {
+        Feature a = feature(square(0, 0));
+        Feature b = feature(square(1, 0));
+        Feature c = feature(square(2, 0));
+        Feature[] key = AdjacentComposites.canonicalKey(Arrays.asList(a, b, c));
+        assertTrue(Arrays.equals(key, AdjacentComposites.canonicalKey(Arrays.asList(c, b, a))));
+        assertTrue(Arrays.equals(key, AdjacentComposites.canonicalKey(Arrays.asList(b, c, a))));
+        assertFalse(Arrays.equals(key, AdjacentComposites.canonicalKey(Arrays.asList(a, b))));
+    }
+
+    /**
+     * Returns every subset of at most maxSize features whose adjacency graph
+     * is connected.
+     */
+    private static Set<Set<Feature>> bruteForce(List<Feature> features, int maxSize) {
+        Set<Set<Feature>> connectedSets = new HashSet<>();
+        int n = features.size();
+        for (int mask = 1; mask < 1 << n; mask++) {
+            if (Integer.bitCount(mask) > maxSize) {
+                continue;
+            }
+            List<Feature> subset = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                if ((mask >> i & 1) != 0) {
+                    subset.add(features.get(i));
+                }
+            }
+            Set<Feature> reached = new HashSet<>();
+            Deque<Feature> queue = new ArrayDeque<>();
+            reached.add(subset.get(0));
+            queue.add(subset.get(0));
+            while (!queue.isEmpty()) {
+                Feature feature = queue.poll();
+                for (Feature other : subset) {
+                    if (!reached.contains(other) && SHARE_EDGE.areAdjacent(feature, other)) {
+                        reached.add(other);
+                        queue.add(other);
+                    }
+                }
+            }
+            if (reached.size() == subset.size()) {
+                connectedSets.add(reached);
+            }
+        }
+        return connectedSets;
+    }
+
+    /**
+     * Returns unit squares on a grid, some of them missing, in random order.
+     */
+    private static FeatureCollection randomGrid(Random random, int columns, int rows) {
+        List<Feature> features = new ArrayList<>();
+        for (int x = 0; x < columns; x++) {
+            for (int y = 0; y < rows; y++) {
+                if (random.nextInt(6) != 0) {
+                    features.add(feature(square(x, y)));
+                }
+            }
+        }
+        Collections.shuffle(features, random);
+        FeatureDataset dataset = new FeatureDataset(SCHEMA);
+        dataset.addAll(features);
+        return new IndexedFeatureCollection(dataset);
+    }
+
+    private static Polygon square(double x, double y) {
+        return rectangle(x, y, 1, 1);
+    }
+}
@@ -0,0 +1,193 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.FACTORY;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.feature;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.util.GeometricShapeFactory;
+import com.vividsolutions.jump.feature.Feature;
+
+/**
+ * Checks ConvexClipping and IntersectionAreas against the area of the JTS
+ * overlay, Geometry#intersection.
+ */
+public class IntersectionAreasTest {
+
+    private final WKTReader reader = new WKTReader(FACTORY);
+
+    @After
+    public void release() {
+        IntersectionAreas.release();
+    }
+
+    @Test
+    public void testConvexPolygons() throws ParseException {
+        checkPair("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))",
+            "POLYGON ((5 5, 15 5, 15 15, 5 15, 5 5))");
+        checkPair("POLYGON ((0 0, 10 0, 5 8, 0 0))",
+            "POLYGON ((2 -1, 12 3, 4 9, 2 -1))");
+    }
+
+    @Test
+    public void testConcavePolygons() throws ParseException {
+        String lShape = "POLYGON ((0 0, 10 0, 10 4, 4 4, 4 10, 0 10, 0 0))";
+        assertNotNull(ConvexClipping.convexParts(geometry(lShape)));
+        checkPair(lShape, "POLYGON ((2 2, 12 2, 12 12, 2 12, 2 2))");
+        checkPair(lShape, "POLYGON ((5 5, 9 5, 9 9, 5 9, 5 5))");
+        checkPair(lShape, "POLYGON ((3 -1, 6 -1, 6 11, 3 11, 3 -1))");
+    }
+
+    @Test
+    public void testHoles() throws ParseException {
+        String withHole = "POLYGON ((0 0, 20 0, 20 20, 0 20, 0 0), (5 5, 15 5, 15 15, 5 15, 5 5))";
+        checkPair(withHole, "POLYGON ((8 8, 12 8, 12 12, 8 12, 8 8))");
+        checkPair(withHole, "POLYGON ((2 2, 10 2, 10 10, 2 10, 2 2))");
+        checkPair(withHole, "POLYGON ((-5 -5, 25 -5, 25 25, -5 25, -5 -5))");
+        checkPair(withHole,
+            "POLYGON ((3 3, 17 3, 17 17, 3 17, 3 3), (9 9, 11 9, 11 11, 9 11, 9 9))");
+    }
+
+    @Test
+    public void testMultiPolygons() throws ParseException {
+        String multi = "MULTIPOLYGON (((0 0, 4 0, 4 4, 0 4, 0 0)), ((6 0, 10 0, 10 4, 6 4, 6 0)),"
+            + " ((100 100, 110 100, 110 110, 100 110, 100 100)))";
+        checkPair(multi, "POLYGON ((2 1, 8 1, 8 3, 2 3, 2 1))");
+        checkPair(multi, "POLYGON ((-1 -1, 11 -1, 11 5, -1 5, -1 -1))");
+        checkPair(multi, "MULTIPOLYGON (((3 3, 7 3, 7 7, 3 7, 3 3)),"
+            + " ((105 105, 120 105, 120 120, 105 120, 105 105)))");
+    }
+
+    @Test
+    public void testLargeRings() throws ParseException {
+        Geometry circle = circle(50, 50, 40, 200);
+        assertTrue(circle.getNumPoints() > ConvexClipping.MAX_RING_VERTICES);
+        assertTrue(circle.getNumPoints() > ConvexClipping.LARGE_RING_POINTS);
+        assertNull(ConvexClipping.convexParts(circle));
+        //A small polygon clips the large ring near it only.
+        checkPair(circle, geometry("POLYGON ((80 45, 95 45, 95 55, 80 55, 80 45))"));
+        checkPair(circle, geometry("POLYGON ((40 40, 60 40, 60 60, 40 60, 40 40))"));
+        checkPair(circle, geometry("POLYGON ((0 0, 100 0, 100 100, 0 100, 0 0))"));
+        //Neither can be clipped: overlay, covers and covered by.
+        checkPair(circle, circle(80, 50, 30, 150));
+        checkPair(circle, circle(50, 50, 10, 150));
+        checkPair(circle, circle(50, 50, 45, 150));
+        checkPair(circle, circle(200, 50, 30, 150));
+        //A large ring with a large hole, and a large ring crossing it.
+        Polygon ring = FACTORY.createPolygon(
+            FACTORY.createLinearRing(circle.getCoordinates()),
+            new LinearRing[] {
+                FACTORY.createLinearRing(circle(50, 50, 20, 120).getCoordinates())});
+        checkPair(ring, circle(70, 50, 25, 150));
+        checkPair(ring, geometry("POLYGON ((45 45, 55 45, 55 55, 45 55, 45 45))"));
+        checkPair(ring, geometry("POLYGON ((60 45, 95 45, 95 55, 60 55, 60 45))"));
+    }
+
+    @Test
+    public void testDisjointEnvelopes() throws ParseException {
+        Geometry a = geometry("POLYGON ((0 0, 10 0, 10 10, 0 10, 0 0))");
+        Geometry b = geometry("POLYGON ((20 0, 30 0, 30 10, 20 10, 20 0))");
+        assertEquals(0, IntersectionAreas.upperBound(a, b), 0);
+        assertEquals(0, IntersectionAreas.compute(a, b), 0);
+        assertEquals(0, IntersectionAreas.forTarget(feature(a)).get(feature(b)), 0);
+    }
+
+    @Test
+    public void testRandomPolygons() {
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            Geometry target = randomPolygon(random, 3 + random.nextInt(90));
+            Feature targetFeature = feature(target);
+            List<Feature> candidates = new ArrayList<>();
+            for (int j = 0; j < 5; j++) {
+                Feature candidate = feature(randomPolygon(random, 3 + random.nextInt(90)));
+                candidates.add(candidate);
+                check(target, candidate.getGeometry(),
+                    IntersectionAreas.compute(target, candidate.getGeometry()));
+            }
+            //The same IntersectionAreas for all the candidates of the target,
+            //each asked twice to go through the memo.
+            for (int pass = 0; pass < 2; pass++) {
+                for (Feature candidate : candidates) {
+                    check(target, candidate.getGeometry(),
+                        IntersectionAreas.forTarget(targetFeature).get(candidate));
+                }
+            }
+            IntersectionAreas.release();
+        }
+    }
+
+    private void checkPair(String target, String candidate) throws ParseException {
+        checkPair(geometry(target), geometry(candidate));
+    }
+
+    /**
+     * Checks both directions, with and without the cached descriptors.
+     */
+    private static void checkPair(Geometry a, Geometry b) {
+        check(a, b, IntersectionAreas.compute(a, b));
+        check(b, a, IntersectionAreas.compute(b, a));
+        Feature featureA = feature(a);
+        Feature featureB = feature(b);
+        check(a, b, IntersectionAreas.forTarget(featureA).get(featureB));
+        check(b, a, IntersectionAreas.forTarget(featureB).get(featureA));
+        check(a, b, IntersectionAreas.forTarget(featureA).get(featureB));
+        ConvexClipping.ConvexParts partsB = ConvexClipping.convexParts(b);
+        if (partsB != null) {
+            check(a, b, ConvexClipping.intersectionArea(a, partsB));
+            check(a, b, ConvexClipping.intersectionArea(a, ConvexClipping.chunkEnvelopes(a), partsB));
+        }
+    }
+
+    private static void check(Geometry target, Geometry candidate, double area) {
+        double expected = target.intersection(candidate).getArea();
+        assertEquals(target + " / " + candidate, expected, area,
+            1e-9 * Math.max(1, Math.max(target.getArea(), candidate.getArea())));
+    }
+
+    private Geometry geometry(String wkt) throws ParseException {
+        return reader.read(wkt);
+    }
+
+    private static Geometry circle(double x, double y, double radius, int points) {
+        GeometricShapeFactory shapeFactory = new GeometricShapeFactory(FACTORY);
+        shapeFactory.setCentre(new Coordinate(x, y));
+        shapeFactory.setSize(2 * radius);
+        shapeFactory.setNumPoints(points);
+        return shapeFactory.createCircle();
+    }
+
+    /**
+     * Returns a simple star-shaped polygon around a random centre, convex or
+     * not, with the given number of vertices.
+     */
+    private static Geometry randomPolygon(Random random, int vertices) {
+        double x = random.nextDouble() * 100;
+        double y = random.nextDouble() * 100;
+        double radius = 5 + random.nextDouble() * 30;
+        boolean convex = random.nextBoolean();
+        Coordinate[] coordinates = new Coordinate[vertices + 1];
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double r = convex ? radius : radius * (0.4 + 0.6 * random.nextDouble());
+            coordinates[i] = new Coordinate(x + r * Math.cos(angle), y + r * Math.sin(angle));
+        }
+        coordinates[vertices] = new Coordinate(coordinates[0]);
+        return FACTORY.createPolygon(coordinates);
+    }
+}
@@ -0,0 +1,61 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.SCHEMA;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.feature;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.rectangle;
+
+import org.junit.Test;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureCollection;
+import com.vividsolutions.jump.feature.FeatureDataset;
+import com.vividsolutions.jump.feature.IndexedFeatureCollection;
+
+/**
+ * Checks that a planned FeatureMatcher gives the scores of the original one.
+ */
+public class MatcherPlannerTest {
+
+    /**
+     * Keeps every candidate, like an attribute comparison all candidates pass.
+     */
+    private static final FeatureMatcher KEEP_ALL =
+        (target, candidates) -> new Matches(candidates.getFeatureSchema(), candidates.getFeatures());
+
+    @Test
+    public void testWindowCoversNearestCandidates() {
+        //The long candidate overlaps the target, but its far ends make it the
+        //furthest by Hausdorff distance. The small candidate is the nearest,
+        //although its envelope is beyond the centroid distance of the last
+        //matcher, which cannot narrow what the nearest candidate is chosen from.
+        Feature target = feature(rectangle(0, 0, 1, 1));
+        Feature longCandidate = feature(rectangle(-42, 0, 100, 1));
+        Feature smallCandidate = feature(rectangle(12, 0, 1, 1));
+        FeatureDataset dataset = new FeatureDataset(SCHEMA);
+        dataset.add(longCandidate);
+        dataset.add(smallCandidate);
+        FeatureCollection candidates = new IndexedFeatureCollection(dataset);
+        FeatureMatcher matcher = new ChainMatcher(new FeatureMatcher[] {
+            KEEP_ALL,
+            new NearestCandidatesMatcher(1, new HausdorffDistanceMatcher(100)),
+            new CentroidDistanceMatcher(10)});
+        assertEquals(100, MatcherUtil.searchDistance(matcher), 0);
+
+        FeatureMatcher planned = MatcherPlanner.plan(matcher);
+        Matches expected = matcher.match(target, candidates);
+        Matches actual = planned.match(target, candidates);
+        assertTrue(expected.isEmpty());
+        assertEquals(expected.size(), actual.size());
+
+        //Without the small candidate, the long one is the nearest.
+        FeatureDataset withoutSmall = new FeatureDataset(SCHEMA);
+        withoutSmall.add(longCandidate);
+        Matches longOnly = planned.match(target, new IndexedFeatureCollection(withoutSmall));
+        assertEquals(1, longOnly.size());
+        assertSame(longCandidate, longOnly.getTopMatch());
+        assertEquals(1 - 7.5 / 10, longOnly.getTopScore(), 1e-9);
+    }
+}
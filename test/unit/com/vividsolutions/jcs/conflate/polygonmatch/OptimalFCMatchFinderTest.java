@@ -0,0 +1,156 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.SCHEMA;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.feature;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.randomMap;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureDataset;
+
+/**
+ * Checks the assignment of OptimalFCMatchFinder against the best one-to-one
+ * assignment found by brute force on small graphs.
+ */
+public class OptimalFCMatchFinderTest {
+
+    @Test
+    public void testOptimalOnSmallGraphs() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 2000; trial++) {
+            ScoreMatrix scores = ScoreMatrix.of(randomMap(random, 1 + random.nextInt(7),
+                1 + random.nextInt(7), Integer.MAX_VALUE, random.nextInt(4)));
+            OptimalFCMatchFinder.Assignment assignment = new OptimalFCMatchFinder.Assignment(scores);
+            assignment.solve(new WorkerMonitor(new AtomicBoolean()));
+            double total = checkOneToOne(scores, assignment.getRowEntries());
+            assertEquals(bruteForce(scores, 0, new boolean[scores.getCandidateCount()]), total, 1e-9);
+        }
+    }
+
+    @Test
+    public void testBestCandidateGivenUp() {
+        //Target 0 prefers candidate 0, but target 1 can only match it.
+        Feature target0 = feature();
+        Feature target1 = feature();
+        Feature candidate0 = feature();
+        Feature candidate1 = feature();
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        map.put(target0, matches(candidate0, 0.9, candidate1, 0.8));
+        map.put(target1, matches(candidate0, 0.7));
+        FeatureDataset targetFC = new FeatureDataset(SCHEMA);
+        targetFC.addAll(map.keySet());
+        Feature unmatched = feature();
+        targetFC.add(unmatched);
+        Map<Feature, Matches> result = new OptimalFCMatchFinder((targets, candidates, monitor) -> map)
+            .match(targetFC, new FeatureDataset(SCHEMA), new WorkerMonitor(new AtomicBoolean()));
+        assertEquals(3, result.size());
+        assertTrue(result.get(target0).getTopMatch() == candidate1);
+        assertTrue(result.get(target1).getTopMatch() == candidate0);
+        assertTrue(result.get(unmatched).isEmpty());
+    }
+
+    @Test
+    public void testCancelledSolveIsOneToOne() {
+        Random random = new Random(2);
+        int partialSolves = 0;
+        for (int trial = 0; trial < 500; trial++) {
+            ScoreMatrix scores = ScoreMatrix.of(randomMap(random, 2 + random.nextInt(20),
+                1 + random.nextInt(6), Integer.MAX_VALUE, random.nextInt(3)));
+            int searchesAllowed = 1 + random.nextInt(3);
+            CancellingMonitor monitor = new CancellingMonitor(searchesAllowed);
+            OptimalFCMatchFinder.Assignment assignment = new OptimalFCMatchFinder.Assignment(scores);
+            assignment.solve(monitor);
+            checkOneToOne(scores, assignment.getRowEntries());
+            if (monitor.isCancelRequested()) {
+                partialSolves++;
+            }
+        }
+        assertTrue(partialSolves > 0);
+    }
+
+    /**
+     * Checks that each row is assigned one of its own entries or nothing, and
+     * each column to at most one row.
+     * @return the total score of the assignment
+     */
+    private static double checkOneToOne(ScoreMatrix scores, int[] rowEntries) {
+        assertEquals(scores.getTargetCount(), rowEntries.length);
+        Set<Integer> columns = new HashSet<>();
+        double total = 0;
+        for (int row = 0; row < rowEntries.length; row++) {
+            int entry = rowEntries[row];
+            if (entry < 0) {
+                continue;
+            }
+            assertTrue(scores.getRowStart(row) <= entry && entry < scores.getRowEnd(row));
+            assertTrue(columns.add(Integer.valueOf(scores.getColumn(entry))));
+            total += scores.getScore(entry);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the greatest total score of the rows from the given one, each
+     * matched to an unused column or to nothing.
+     */
+    private static double bruteForce(ScoreMatrix scores, int row, boolean[] used) {
+        if (row == scores.getTargetCount()) {
+            return 0;
+        }
+        double best = bruteForce(scores, row + 1, used);
+        for (int e = scores.getRowStart(row); e < scores.getRowEnd(row); e++) {
+            int column = scores.getColumn(e);
+            if (!used[column]) {
+                used[column] = true;
+                best = Math.max(best, scores.getScore(e) + bruteForce(scores, row + 1, used));
+                used[column] = false;
+            }
+        }
+        return best;
+    }
+
+    private static Matches matches(Object... candidatesAndScores) {
+        Matches matches = new Matches(SCHEMA);
+        for (int i = 0; i < candidatesAndScores.length; i += 2) {
+            matches.add((Feature) candidatesAndScores[i],
+                ((Double) candidatesAndScores[i + 1]).doubleValue());
+        }
+        return matches;
+    }
+
+    /**
+     * Requests cancellation once the given number of contested targets have
+     * been reported.
+     */
+    private static class CancellingMonitor extends WorkerMonitor {
+        private final AtomicBoolean cancelled;
+        private final int searchesAllowed;
+
+        CancellingMonitor(int searchesAllowed) {
+            this(new AtomicBoolean(), searchesAllowed);
+        }
+
+        private CancellingMonitor(AtomicBoolean cancelled, int searchesAllowed) {
+            super(cancelled);
+            this.cancelled = cancelled;
+            this.searchesAllowed = searchesAllowed;
+        }
+
+        @Override
+        public void report(int itemsDone, int totalItems, String itemDescription) {
+            if (itemsDone >= searchesAllowed && itemsDone < totalItems) {
+                cancelled.set(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.SCHEMA;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.feature;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.vividsolutions.jump.feature.BasicFeature;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureDataset;
+import com.vividsolutions.jump.task.TaskMonitor;
+
+/**
+ * Checks that ScoredPairs sorts the triples in the order of
+ * DisambiguationMatch, and that DisambiguatingFCMatchFinder keeps the
+ * matches of the original greedy pass over a TreeSet of
+ * DisambiguationMatches.
+ */
+public class ScoredPairsTest {
+
+    private static final TaskMonitor MONITOR = new WorkerMonitor(new AtomicBoolean());
+
+    @Test
+    public void testOrderOfDisambiguationMatch() {
+        Random random = new Random(1);
+        for (int trial = 0; trial < 50; trial++) {
+            Map<Feature, Matches> map = randomMap(random, 1 + random.nextInt(40),
+                1 + random.nextInt(40), random.nextInt(6));
+            checkOrderOfDisambiguationMatch(map, ScoredPairs.create(map));
+            checkOrderOfDisambiguationMatch(map, ScoredPairs.createUnpacked(map));
+        }
+    }
+
+    @Test
+    public void testPackingRoundTrip() {
+        //Rank counts which are not powers of two, so no field is full.
+        Random random = new Random(2);
+        Map<Feature, Matches> map = randomMap(random, 37, 1000, 0);
+        Set<List<Object>> triples = new HashSet<>();
+        for (Map.Entry<Feature, Matches> entry : map.entrySet()) {
+            for (int j = 0; j < entry.getValue().size(); j++) {
+                triples.add(Arrays.<Object>asList(entry.getKey(), entry.getValue().getFeature(j),
+                    Double.valueOf(entry.getValue().getScore(j))));
+            }
+        }
+        ScoredPairs pairs = ScoredPairs.create(map);
+        Set<List<Object>> packed = new HashSet<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            packed.add(Arrays.<Object>asList(pairs.getTarget(i), pairs.getCandidate(i),
+                Double.valueOf(pairs.getScore(i))));
+            if (i > 0) {
+                assertTrue(new DisambiguationMatch(pairs.getTarget(i - 1), pairs.getCandidate(i - 1),
+                    pairs.getScore(i - 1)).compareTo(new DisambiguationMatch(pairs.getTarget(i),
+                    pairs.getCandidate(i), pairs.getScore(i))) < 0);
+            }
+        }
+        assertEquals(triples, packed);
+    }
+
+    @Test
+    public void testPackableRanks() {
+        //21 + 21 + 21 bits, and 31 + 16 + 16 bits.
+        assertTrue(ScoredPairs.isPackable(1 << 21, 1 << 21, 1 << 21));
+        assertTrue(ScoredPairs.isPackable(Integer.MAX_VALUE, 1 << 16, 1 << 16));
+        assertTrue(ScoredPairs.isPackable(1, 1, 1));
+        assertTrue(ScoredPairs.isPackable(0, 0, 0));
+    }
+
+    @Test
+    public void testTooManyRanks() {
+        assertFalse(ScoredPairs.isPackable((1 << 21) + 1, (1 << 21) + 1, (1 << 21) + 1));
+        assertFalse(ScoredPairs.isPackable(Integer.MAX_VALUE, 1 << 16, (1 << 16) + 1));
+    }
+
+    @Test
+    public void testNegativeZeroEqualsZero() {
+        Feature first = feature();
+        Feature second = feature();
+        Feature candidate1 = feature();
+        Feature candidate2 = feature();
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        //-0.0 sorted after 0.0 would put the second target first.
+        map.put(second, scores(candidate2, 0.0));
+        map.put(first, scores(candidate1, -0.0));
+        ScoredPairs pairs = ScoredPairs.create(map);
+        assertEquals(2, pairs.size());
+        assertSame(first, pairs.getTarget(0));
+        assertSame(second, pairs.getTarget(1));
+        assertEquals(Double.doubleToLongBits(0.0), Double.doubleToLongBits(pairs.getScore(0)));
+    }
+
+    @Test
+    public void testNaNLast() {
+        Feature first = feature();
+        Feature second = feature();
+        Feature candidate = feature();
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        map.put(first, scores(candidate, Double.NaN, feature(), 0.25));
+        map.put(second, scores(feature(), 0.5, candidate, Double.NaN));
+        ScoredPairs pairs = ScoredPairs.create(map);
+        assertEquals(4, pairs.size());
+        assertEquals(0.5, pairs.getScore(0), 0);
+        assertEquals(0.25, pairs.getScore(1), 0);
+        assertTrue(Double.isNaN(pairs.getScore(2)));
+        assertTrue(Double.isNaN(pairs.getScore(3)));
+        assertSame(first, pairs.getTarget(2));
+        assertSame(second, pairs.getTarget(3));
+    }
+
+    @Test
+    public void testFeaturesComparingEqual() {
+        //Distinct instances comparing equal, which DisambiguationMatch takes
+        //to be the same feature.
+        Feature target = new KeyedFeature(1);
+        Feature sameTarget = new KeyedFeature(1);
+        Feature otherTarget = new KeyedFeature(2);
+        Feature candidate = new KeyedFeature(10);
+        Feature sameCandidate = new KeyedFeature(10);
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        map.put(target, scores(candidate, 0.5));
+        map.put(sameTarget, scores(sameCandidate, 0.5, new KeyedFeature(11), 0.75));
+        map.put(otherTarget, scores(sameCandidate, 0.75));
+        ScoredPairs pairs = ScoredPairs.create(map);
+        assertEquals(4, pairs.size());
+        assertEquals(2, pairs.getTargetCount());
+        assertEquals(2, pairs.getCandidateCount());
+        for (int i = 0; i < pairs.size(); i++) {
+            //The first instance met stands for the equal ones.
+            assertTrue(pairs.getTarget(i) == target || pairs.getTarget(i) == otherTarget);
+            assertTrue(pairs.getCandidate(i) == candidate || pairs.getCandidate(i).compareTo(candidate) != 0);
+        }
+        assertEquals(pairs.getTargetIndex(2), pairs.getTargetIndex(3));
+        assertEquals(pairs.getCandidateIndex(2), pairs.getCandidateIndex(3));
+        assertSame(pairs.getCandidate(2), pairs.getCandidate(3));
+    }
+
+    @Test
+    public void testDisambiguatingFCMatchFinder() {
+        Random random = new Random(3);
+        for (int trial = 0; trial < 100; trial++) {
+            Map<Feature, Matches> map = randomMap(random, 1 + random.nextInt(60),
+                1 + random.nextInt(60), random.nextInt(6));
+            FeatureDataset targetFC = new FeatureDataset(SCHEMA);
+            targetFC.addAll(map.keySet());
+            for (int i = random.nextInt(3); i > 0; i--) {
+                targetFC.add(feature());
+            }
+            FeatureDataset candidateFC = new FeatureDataset(SCHEMA);
+            Map<Feature, Matches> expected = greedyPass(targetFC, candidateFC, map);
+            Map<Feature, Matches> actual = new DisambiguatingFCMatchFinder(
+                (targets, candidates, monitor) -> map).match(targetFC, candidateFC, MONITOR);
+            assertEquals(expected.keySet(), actual.keySet());
+            for (Feature target : expected.keySet()) {
+                Matches expectedMatches = expected.get(target);
+                Matches actualMatches = actual.get(target);
+                assertEquals(expectedMatches.size(), actualMatches.size());
+                for (int j = 0; j < expectedMatches.size(); j++) {
+                    assertSame(expectedMatches.getFeature(j), actualMatches.getFeature(j));
+                    assertEquals(expectedMatches.getScore(j), actualMatches.getScore(j), 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that the triples come in the order of the TreeSet of
+     * DisambiguationMatches.
+     */
+    private static void checkOrderOfDisambiguationMatch(Map<Feature, Matches> map, ScoredPairs pairs) {
+        Iterator<DisambiguationMatch> expected =
+            DisambiguationMatch.createDisambiguationMatches(map, MONITOR).iterator();
+        for (int i = 0; i < pairs.size(); i++) {
+            DisambiguationMatch match = expected.next();
+            assertSame(match.getTarget(), pairs.getTarget(i));
+            assertSame(match.getCandidate(), pairs.getCandidate(i));
+            assertEquals(match.getScore(), pairs.getScore(i), 0);
+        }
+        assertTrue(!expected.hasNext());
+    }
+
+    /**
+     * The disambiguation of the original DisambiguatingFCMatchFinder.
+     */
+    private static Map<Feature, Matches> greedyPass(FeatureDataset targetFC,
+        FeatureDataset candidateFC, Map<Feature, Matches> original) {
+        List<Feature> targets = new ArrayList<>();
+        List<Feature> candidates = new ArrayList<>();
+        List<Double> scores = new ArrayList<>();
+        for (DisambiguationMatch match : DisambiguationMatch.createDisambiguationMatches(original, MONITOR)) {
+            if (targets.contains(match.getTarget()) || candidates.contains(match.getCandidate())) {
+                continue;
+            }
+            targets.add(match.getTarget());
+            candidates.add(match.getCandidate());
+            scores.add(Double.valueOf(match.getScore()));
+        }
+        Map<Feature, Matches> targetToMatchesMap = AreaFilterFCMatchFinder.blankTargetToMatchesMap(
+            targetFC.getFeatures(), candidateFC.getFeatureSchema());
+        for (int i = 0; i < targets.size(); i++) {
+            Matches matches = new Matches(candidateFC.getFeatureSchema());
+            matches.add(candidates.get(i), scores.get(i).doubleValue());
+            targetToMatchesMap.put(targets.get(i), matches);
+        }
+        return targetToMatchesMap;
+    }
+
+    /**
+     * Returns random matches of at most 8 candidates per target.
+     */
+    private static Map<Feature, Matches> randomMap(Random random, int targetCount,
+        int candidateCount, int scoreLevels) {
+        return TestFeatures.randomMap(random, targetCount, candidateCount, 8, scoreLevels);
+    }
+
+    /**
+     * Returns the given candidates and scores, which Matches#add would not
+     * accept for -0.0 and NaN.
+     */
+    private static Matches scores(Object... candidatesAndScores) {
+        return new Matches(SCHEMA) {
+            @Override
+            public int size() {
+                return candidatesAndScores.length / 2;
+            }
+            @Override
+            public Feature getFeature(int index) {
+                return (Feature) candidatesAndScores[2 * index];
+            }
+            @Override
+            public double getScore(int i) {
+                return ((Double) candidatesAndScores[2 * i + 1]).doubleValue();
+            }
+        };
+    }
+
+    /**
+     * A feature comparing equal to the features with the same key.
+     */
+    private static class KeyedFeature extends BasicFeature {
+        private final int key;
+
+        KeyedFeature(int key) {
+            super(SCHEMA);
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Feature o) {
+            return Integer.compare(key, ((KeyedFeature) o).key);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.SCHEMA;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.feature;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.rectangle;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureDataset;
+import com.vividsolutions.jump.feature.IndexedFeatureCollection;
+
+/**
+ * Pins the matches of TargetUnioningFCMatchFinder on a small grid of
+ * squares, matched by symmetric difference.
+ */
+public class TargetUnioningFCMatchFinderTest {
+
+    @Test
+    public void testGrid() {
+        //Row 0: a chain of four squares covered by one long candidate. No
+        //square is adjacent to the three others, so only a connected set
+        //which is not a neighbourhood can match it.
+        //Row 2: a square and its exact candidate, next to a square without
+        //candidate.
+        FeatureDataset targets = new FeatureDataset(SCHEMA);
+        Feature[] chain = new Feature[4];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = feature(rectangle(i, 0, 1, 1));
+            targets.add(chain[i]);
+        }
+        Feature single = feature(rectangle(0, 2, 1, 1));
+        Feature unmatched = feature(rectangle(1, 2, 1, 1));
+        targets.add(single);
+        targets.add(unmatched);
+        FeatureDataset candidates = new FeatureDataset(SCHEMA);
+        Feature longCandidate = feature(rectangle(0, 0, 4, 1));
+        Feature singleCandidate = feature(rectangle(-0.1, 2, 1, 1));
+        candidates.add(longCandidate);
+        candidates.add(singleCandidate);
+
+        TargetUnioningFCMatchFinder finder = new TargetUnioningFCMatchFinder(4,
+            new BasicFCMatchFinder(new SymDiffMatcher()));
+        Map<Feature, Matches> map = finder.match(new IndexedFeatureCollection(targets),
+            new IndexedFeatureCollection(candidates), new WorkerMonitor(new AtomicBoolean()));
+
+        assertEquals(6, map.size());
+        Integer chainUnionID = finder.getUnionID(chain[0]);
+        assertNotNull(chainUnionID);
+        for (Feature target : chain) {
+            Matches matches = map.get(target);
+            assertEquals(1, matches.size());
+            assertSame(longCandidate, matches.getTopMatch());
+            assertEquals(1, matches.getTopScore(), 1e-9);
+            assertEquals(chainUnionID, finder.getUnionID(target));
+        }
+        Matches singleMatches = map.get(single);
+        assertEquals(1, singleMatches.size());
+        assertSame(singleCandidate, singleMatches.getTopMatch());
+        assertEquals(1 - 0.2 / 2, singleMatches.getTopScore(), 1e-9);
+        assertNull(finder.getUnionID(single));
+        assertTrue(map.get(unmatched).isEmpty());
+        assertNull(finder.getUnionID(unmatched));
+    }
+
+    @Test
+    public void testMaxCompositeSize() {
+        //With composites of at most three squares, the best union of the chain
+        //leaves one square to match the long candidate on its own.
+        FeatureDataset targets = new FeatureDataset(SCHEMA);
+        Feature[] chain = new Feature[4];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = feature(rectangle(i, 0, 1, 1));
+            targets.add(chain[i]);
+        }
+        FeatureDataset candidates = new FeatureDataset(SCHEMA);
+        Feature longCandidate = feature(rectangle(0, 0, 4, 1));
+        candidates.add(longCandidate);
+
+        TargetUnioningFCMatchFinder finder = new TargetUnioningFCMatchFinder(3,
+            new BasicFCMatchFinder(new SymDiffMatcher()));
+        Map<Feature, Matches> map = finder.match(new IndexedFeatureCollection(targets),
+            new IndexedFeatureCollection(candidates), new WorkerMonitor(new AtomicBoolean()));
+
+        assertEquals(4, map.size());
+        int unionMembers = 0;
+        for (Feature target : chain) {
+            Matches matches = map.get(target);
+            assertEquals(1, matches.size());
+            assertSame(longCandidate, matches.getTopMatch());
+            if (finder.getUnionID(target) != null) {
+                unionMembers++;
+                //Three squares of area 1 against the candidate of area 4.
+                assertEquals(1 - 1.0 / 7, matches.getTopScore(), 1e-9);
+            } else {
+                assertEquals(1 - 3.0 / 5, matches.getTopScore(), 1e-9);
+            }
+        }
+        assertEquals(3, unionMembers);
+    }
+}
@@ -0,0 +1,85 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jump.feature.AttributeType;
+import com.vividsolutions.jump.feature.BasicFeature;
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureSchema;
+
+/**
+ * Features and matches shared by the tests of this package.
+ */
+final class TestFeatures {
+
+    static final GeometryFactory FACTORY = new GeometryFactory();
+
+    /**
+     * A schema with a geometry attribute only.
+     */
+    static final FeatureSchema SCHEMA = new FeatureSchema();
+
+    static {
+        SCHEMA.addAttribute("GEOMETRY", AttributeType.GEOMETRY);
+    }
+
+    private TestFeatures() {
+    }
+
+    /**
+     * Returns a feature without geometry.
+     */
+    static Feature feature() {
+        return new BasicFeature(SCHEMA);
+    }
+
+    static Feature feature(Geometry geometry) {
+        Feature feature = new BasicFeature(SCHEMA);
+        feature.setGeometry(geometry);
+        return feature;
+    }
+
+    static Polygon rectangle(double x, double y, double width, double height) {
+        return FACTORY.createPolygon(new Coordinate[] {
+            new Coordinate(x, y), new Coordinate(x + width, y),
+            new Coordinate(x + width, y + height), new Coordinate(x, y + height),
+            new Coordinate(x, y)});
+    }
+
+    /**
+     * Returns random matches of new targets among new candidates, with few
+     * distinct scores so that many ties are broken by target and candidate.
+     * @param maxMatchCount the greatest number of candidates matching a target
+     * @param scoreLevels the number of distinct scores, or 0 for random scores
+     */
+    static Map<Feature, Matches> randomMap(Random random, int targetCount,
+        int candidateCount, int maxMatchCount, int scoreLevels) {
+        List<Feature> candidates = new ArrayList<>();
+        for (int i = 0; i < candidateCount; i++) {
+            candidates.add(feature());
+        }
+        Map<Feature, Matches> map = new LinkedHashMap<>();
+        for (int i = 0; i < targetCount; i++) {
+            Matches matches = new Matches(SCHEMA);
+            Collections.shuffle(candidates, random);
+            int matchCount = random.nextInt(Math.min(maxMatchCount, candidateCount) + 1);
+            for (int j = 0; j < matchCount; j++) {
+                double score = scoreLevels == 0
+                    ? 1 - random.nextDouble()
+                    : (1 + random.nextInt(scoreLevels)) / (double) scoreLevels;
+                matches.add(candidates.get(j), score);
+            }
+            map.put(feature(), matches);
+        }
+        return map;
+    }
+}
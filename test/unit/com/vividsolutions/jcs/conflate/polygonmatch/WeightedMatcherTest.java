@@ -0,0 +1,52 @@
+package com.vividsolutions.jcs.conflate.polygonmatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.SCHEMA;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.feature;
+import static com.vividsolutions.jcs.conflate.polygonmatch.TestFeatures.rectangle;
+
+import org.junit.Test;
+
+import com.vividsolutions.jump.feature.Feature;
+import com.vividsolutions.jump.feature.FeatureDataset;
+
+/**
+ * Checks that the pruned evaluation of WeightedMatcher gives the scores of
+ * the plain one.
+ */
+public class WeightedMatcherTest {
+
+    @Test
+    public void testNearestCandidatesNotPruned() {
+        //The near candidate is the nearest by Hausdorff distance, but its
+        //centroid is far; the concentric candidate is the other way round.
+        Feature target = feature(rectangle(0, 0, 1, 1));
+        Feature near = feature(rectangle(0.9, 0, 1, 1));
+        Feature concentric = feature(rectangle(-1, -1, 3, 3));
+        FeatureDataset candidates = new FeatureDataset(SCHEMA);
+        candidates.add(near);
+        candidates.add(concentric);
+        WeightedMatcher weighted = new WeightedMatcher(new Object[] {
+            Double.valueOf(1), new CentroidDistanceMatcher(1),
+            Double.valueOf(1), new NearestCandidatesMatcher(1, new HausdorffDistanceMatcher(10))});
+
+        Matches plain = weighted.match(target, candidates);
+        assertEquals(2, plain.size());
+        assertSame(near, plain.getTopMatch());
+        assertEquals((0.1 + 0.91) / 2, plain.getTopScore(), 1e-9);
+
+        //Leaving out the near candidate after the centroid distance would make
+        //the concentric one the nearest, with a score above the threshold.
+        Matches pruned = weighted.match(target, candidates, 0.6, false);
+        for (int i = 0; i < pruned.size(); i++) {
+            int j = plain.getFeatures().indexOf(pruned.getFeature(i));
+            assertTrue(j >= 0);
+            assertEquals(plain.getScore(j), pruned.getScore(i), 0);
+        }
+        Matches filtered = new ChainMatcher(new FeatureMatcher[] {
+            weighted, new ThresholdFilter(0.6)}).match(target, candidates);
+        assertTrue(filtered.isEmpty());
+    }
+}